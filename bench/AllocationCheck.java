@@ -0,0 +1,70 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Checks that GameWorld.step() allocates nothing during play: four tanks drive and fire at
+ * random, and after warming up, every tick that neither resets the round nor spawns
+ * power-ups must allocate zero bytes on the stepping thread. Those two are allowed to, as
+ * they generate a maze and create PowerUp objects. Exits with status 1 on failure.
+ *
+ * The warm-up measures every tick too, only without counting: the first time the JIT
+ * compiles ThreadMXBean's own code it interns that class's string constants on this
+ * thread, and that would otherwise land inside a checked tick.
+ *
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out AllocationCheck [ticks]
+ */
+public class AllocationCheck {
+    private static final int WARMUP_TICKS = 200_000;
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Allocation counting isn't supported by this JVM");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        GameWorld world = new GameWorld();
+        world.setSeed(1);
+        world.setPlayerCount(4);
+        world.resetGame();
+        Random random = new Random(1);
+        int[] inputs = new int[4];
+        int checked = 0, excused = 0, failed = 0;
+        for (int i = -WARMUP_TICKS; i < ticks; i++) {
+            randomInputs(random, inputs);
+            int generation = world.getMaze().getGeneration();
+            int powerUps = world.getPowerUps().size();
+            long before = threads.getThreadAllocatedBytes(thread);
+            world.step(inputs);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+            if (i < 0) continue;
+            if (world.getMaze().getGeneration() != generation || world.getPowerUps().size() > powerUps) {
+                excused++;
+            } else {
+                checked++;
+                if (allocated != 0) {
+                    failed++;
+                    if (failed <= 10) System.out.println("tick " + world.getTick() + " allocated " + allocated + " bytes");
+                }
+            }
+        }
+
+        System.out.printf("%d ticks checked, %d allocated; %d round reset or power-up ticks not checked%n",
+                checked, failed, excused);
+        if (failed > 0) System.exit(1);
+    }
+
+    // Held movement that changes now and then, and a fire press about once a second
+    private static void randomInputs(Random random, int[] inputs) {
+        for (int p = 0; p < inputs.length; p++) {
+            if (random.nextInt(20) == 0) inputs[p] = random.nextInt(16);
+            inputs[p] = (inputs[p] & InputFrame.MOVEMENT) | (random.nextInt(60) == 0 ? InputFrame.FIRE : 0);
+        }
+    }
+}
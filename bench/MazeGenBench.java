@@ -0,0 +1,49 @@
+/**
+ * Time per Maze.generate() for each MazeGenerator, from the standard 12x20 maze up to
+ * 1000x1000, addLoops() included. Each result is checked with a flow field for cells that
+ * can't be reached, which should never happen. Exits with status 1 if any can't be.
+ *
+ *   javac -d out src/*.java bench/*.java
+ *   java -Xss512k -cp out MazeGenBench
+ *
+ * The small stack is deliberate: the generators are iterative and must not need more.
+ */
+public class MazeGenBench {
+    private static final int[][] SIZES = {{12, 20}, {100, 100}, {500, 500}, {1000, 1000}};
+
+    public static void main(String[] args) {
+        MazeGenerator[] generators = {
+                new BacktrackerGenerator(), new WilsonGenerator(), new KruskalGenerator(), new GrowingTreeGenerator()
+        };
+        boolean connected = true;
+        for (int[] size : SIZES) {
+            int rows = size[0], cols = size[1];
+            Maze maze = new Maze(rows, cols);
+            int repeats = rows * cols <= 240 ? 2000 : rows <= 100 ? 50 : 3;
+            for (MazeGenerator generator : generators) {
+                maze.setGenerator(generator);
+                maze.generate();
+                maze.generate();  // Warm up
+
+                long start = System.nanoTime();
+                for (int i = 0; i < repeats; i++) {
+                    maze.generate();
+                }
+                double ms = (System.nanoTime() - start) / 1e6 / repeats;
+
+                FlowField field = new FlowField(maze);
+                field.update(0, 0);
+                int unreachable = 0;
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < cols; c++) {
+                        if (field.getDistance(r, c) == Integer.MAX_VALUE) unreachable++;
+                    }
+                }
+                connected &= unreachable == 0;
+                System.out.printf("%4dx%-4d  %-22s %9.3f ms  unreachable cells %d%n",
+                        rows, cols, generator.getClass().getSimpleName(), ms, unreachable);
+            }
+        }
+        if (!connected) System.exit(1);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Cost per tick of finding each homing missile's target, 8 missiles and 4 tanks on the
+ * standard maze, for the three ways it has been done:
+ * <ul>
+ *   <li>bfs: a BFS from the missile to every live tank, every tick, as before the distance
+ *       table (reproduced below);</li>
+ *   <li>table: Maze.getDistance() to every live tank;</li>
+ *   <li>field: HomingMissile's shared flow field, as the game does now, steering included.</li>
+ * </ul>
+ * The tanks wander between timed ticks so the flow field has to follow them.
+ *
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out MissileBench [ticks]
+ */
+public class MissileBench {
+    private static final int MISSILES = 8;
+    private static final int PLAYERS = 4;
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("bfs %6.2f us/tick   table %6.2f us/tick   field %6.2f us/tick%n",
+                    run(ticks, 0), run(ticks, 1), run(ticks, 2));
+        }
+    }
+
+    private static double run(int ticks, int method) {
+        GameWorld world = new GameWorld();
+        world.setSeed(7);
+        world.setPlayerCount(PLAYERS);
+        world.resetGame();
+        Maze maze = world.getMaze();
+        Tank[] players = new Tank[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = world.getPlayer(i);
+        }
+
+        Random random = new Random(3);
+        BulletPool missiles = new BulletPool();
+        for (int i = 0; i < MISSILES; i++) {
+            float x = (random.nextInt(maze.getCols()) + 0.5f) * GameWorld.CELL_SIZE;
+            float y = (random.nextInt(maze.getRows()) + 0.5f) * GameWorld.CELL_SIZE;
+            missiles.add(x, y, 0, HomingMissile.SPEED, HomingMissile.LIFETIME, 1f, -1, true);
+            missiles.lifetime[i] = HomingMissile.LIFETIME / 2;  // Past the homing delay
+        }
+        HomingMissile guidance = new HomingMissile(maze);
+        PathSearch search = new PathSearch(maze);
+        int[] inputs = new int[PLAYERS];
+
+        long nanos = 0;
+        int found = 0;
+        for (int t = 0; t < ticks; t++) {
+            for (int p = 0; p < PLAYERS; p++) {
+                if (random.nextInt(20) == 0) inputs[p] = random.nextInt(16);
+            }
+            world.step(inputs);
+
+            long start = System.nanoTime();
+            if (method == 2) guidance.track(players, PLAYERS);
+            for (int i = 0; i < MISSILES; i++) {
+                int row = (int) (missiles.y[i] / GameWorld.CELL_SIZE);
+                int col = (int) (missiles.x[i] / GameWorld.CELL_SIZE);
+                if (method == 2) {
+                    guidance.steer(missiles, i, players);
+                    continue;
+                }
+                int best = Integer.MAX_VALUE;
+                for (Tank tank : players) {
+                    if (tank.isDestroyed()) continue;
+                    int tankRow = (int) (tank.getY() / GameWorld.CELL_SIZE);
+                    int tankCol = (int) (tank.getX() / GameWorld.CELL_SIZE);
+                    int d = method == 0 ? search.distance(row, col, tankRow, tankCol)
+                            : maze.getDistance(row, col, tankRow, tankCol);
+                    best = Math.min(best, d);
+                }
+                if (best != Integer.MAX_VALUE) found++;
+            }
+            nanos += System.nanoTime() - start;
+        }
+        if (found < 0) System.out.println(found);  // Keeps the lookups from being optimised away
+        return nanos / 1e3 / ticks;
+    }
+
+    // The per-missile, per-tank BFS the distance table replaced
+    private static final class PathSearch {
+        private final Maze maze;
+        private final int[] queue, distance, visitedMark;
+        private int mark = 0;
+
+        PathSearch(Maze maze) {
+            this.maze = maze;
+            int cells = maze.getRows() * maze.getCols();
+            queue = new int[cells];
+            distance = new int[cells];
+            visitedMark = new int[cells];
+        }
+
+        int distance(int fromRow, int fromCol, int toRow, int toCol) {
+            int rows = maze.getRows(), cols = maze.getCols();
+            if (++mark == 0) {
+                Arrays.fill(visitedMark, 0);
+                mark = 1;
+            }
+            int head = 0, tail = 0;
+            int start = fromRow * cols + fromCol;
+            queue[tail++] = start;
+            distance[start] = 0;
+            visitedMark[start] = mark;
+
+            while (head < tail) {
+                int current = queue[head++];
+                int r = current / cols, c = current % cols;
+                if (r == toRow && c == toCol) return distance[current];
+                for (int dir = 0; dir < 4; dir++) {
+                    if (maze.hasWall(r, c, dir)) continue;
+                    int nr = r + Maze.ROW_STEP[dir], nc = c + Maze.COL_STEP[dir];
+                    if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+                    int next = nr * cols + nc;
+                    if (visitedMark[next] != mark) {
+                        visitedMark[next] = mark;
+                        distance[next] = distance[current] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+    }
+}
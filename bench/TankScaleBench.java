@@ -0,0 +1,55 @@
+import java.util.Random;
+
+/**
+ * Headless simulation speed against tank count, with the maze area grown in proportion
+ * the way NetServer sizes big matches. Tanks hold random movement that changes now and
+ * then and fire about once every 40 ticks; after as many warm-up ticks, the measured ticks
+ * report ticks per second and how many bullets and live tanks there were on average.
+ *
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out TankScaleBench [ticks] [tanks...]
+ */
+public class TankScaleBench {
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int[] counts = {4, 8, 16, 32, 64};
+        if (args.length > 1) {
+            counts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                counts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("tanks  maze     ticks/s  avg bullets  avg alive");
+        for (int tanks : counts) {
+            double scale = Math.sqrt(Math.max(1.0, tanks / 4.0));
+            int rows = (int) Math.round(GameWorld.ROWS * scale);
+            int cols = (int) Math.round(GameWorld.COLS * scale);
+            GameWorld world = new GameWorld(rows, cols);
+            world.setSeed(1);
+            world.setPlayerCount(tanks);
+            world.resetGame();
+
+            Random random = new Random(1);
+            int[] inputs = new int[tanks];
+            long bullets = 0, alive = 0, start = 0;
+            for (int i = 0; i < ticks * 2; i++) {
+                if (i == ticks) start = System.nanoTime();
+                for (int p = 0; p < tanks; p++) {
+                    if (random.nextInt(20) == 0) inputs[p] = random.nextInt(16);
+                    inputs[p] = (inputs[p] & InputFrame.MOVEMENT) | (random.nextInt(40) == 0 ? InputFrame.FIRE : 0);
+                }
+                world.step(inputs);
+                if (i >= ticks) {
+                    bullets += world.getBullets().count();
+                    for (int p = 0; p < tanks; p++) {
+                        if (!world.getPlayer(p).isDestroyed()) alive++;
+                    }
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%5d  %-7s %8.0fk %12.1f %10.1f%n", tanks, rows + "x" + cols,
+                    ticks * 1e6 / nanos, bullets / (double) ticks, alive / (double) ticks);
+        }
+    }
+}
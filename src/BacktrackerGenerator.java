@@ -0,0 +1,58 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Depth-first recursive backtracker with an explicit stack, so maze size is not limited
+ * by the thread's stack depth. Produces long, winding corridors.
+ */
+public class BacktrackerGenerator implements MazeGenerator {
+    private int[] stack = new int[0];
+    private byte[] order = new byte[0];     // Index into DIRECTION_ORDERS per cell
+    private byte[] tried = new byte[0];     // Directions already tried per cell
+    private boolean[] visited = new boolean[0];
+
+    @Override
+    public void generate(Maze maze, Random rand) {
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        int cells = rows * cols;
+        if (visited.length != cells) {
+            stack = new int[cells];
+            order = new byte[cells];
+            tried = new byte[cells];
+            visited = new boolean[cells];
+        } else {
+            Arrays.fill(visited, false);
+        }
+
+        int top = 0;
+        stack[top++] = 0;
+        visited[0] = true;
+        order[0] = (byte) rand.nextInt(DIRECTION_ORDERS.length);
+        tried[0] = 0;
+
+        while (top > 0) {
+            int cell = stack[top - 1];
+            if (tried[cell] == 4) {
+                top--;
+                continue;
+            }
+
+            int dir = DIRECTION_ORDERS[order[cell]][tried[cell]++];
+            int r = cell / cols;
+            int c = cell % cols;
+            int nr = r + Maze.ROW_STEP[dir];
+            int nc = c + Maze.COL_STEP[dir];
+            if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+
+            int next = nr * cols + nc;
+            if (visited[next]) continue;
+
+            maze.openWall(r, c, dir);
+            visited[next] = true;
+            order[next] = (byte) rand.nextInt(DIRECTION_ORDERS.length);
+            tried[next] = 0;
+            stack[top++] = next;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * Built-in computer player. Every tick it, in order of urgency,
+ * <ul>
+ *   <li>dodges: the bullets nearest it are run ahead through the real {@link Bullet#update}
+ *       bounces, and if the planned move would meet one, the move that stays clear longest
+ *       is taken instead;</li>
+ *   <li>shoots: a trial shot along the barrel is run the same way and the bot fires if it
+ *       reaches an enemy before it could come back at the bot;</li>
+ *   <li>hunts: it drives along a {@link FlowField} to the enemy nearest by path, or stops to
+ *       turn towards an angle whose shot, bounces included, would hit that enemy.</li>
+ * </ul>
+ * Finding such an angle takes a few dozen trial shots, far too many for one tick's share,
+ * so the search runs until the deadline and carries on from there next tick. Dodging and
+ * shooting check the deadline too: once it has passed, the bot keeps the move it planned,
+ * dodges only the bullets it has already run ahead, and holds its fire.
+ */
+public class BotController implements TankController {
+    private static final float CELL = GameWorld.CELL_SIZE;
+    private static final int DODGE_TICKS = 40;    // How far ahead incoming bullets are run
+    private static final int MAX_DODGED = 8;      // Nearest bullets dodged, the rest are too far to matter
+    private static final float DODGE_RANGE = Bullet.SPEED * DODGE_TICKS + Tank.SIZE;
+    private static final float DODGE_MARGIN = 4f;  // Clearance kept around the hitbox
+    private static final int AIM_TICKS = 150;     // Length of a trial shot, 450 px of path
+    private static final float AIM_RANGE = Bullet.SPEED * AIM_TICKS + Tank.SIZE;
+    private static final int AIM_STEPS = 16;      // Trial angles either side of the bearing to the target
+    private static final int LEAD_TICKS = 20;     // Longest an enemy is assumed to keep going straight
+    private static final int SELF_GRACE_TICKS = 6;  // Before a shot has cleared the tank firing it
+    private static final float MUZZLE = Tank.SIZE / 2f + Bullet.RADIUS + 1;  // Where Tank.fire() puts the bullet
+    private static final float DRIVE_ANGLE = 0.5f;  // Drives on while facing within this of the way
+    private static final float CORNER_SLACK = 6f;   // Off the middle of a cell before turning out of it
+    private static final int FIRE_COOLDOWN_TICKS = GameWorld.TICKS_PER_SECOND / 3;
+    private static final int STUCK_TICKS = 15;
+    private static final int REVERSE_TICKS = 20;
+
+    // Moves tried when dodging
+    private static final int[] DODGES = {
+            InputFrame.UP, InputFrame.UP | InputFrame.LEFT, InputFrame.UP | InputFrame.RIGHT,
+            InputFrame.DOWN, InputFrame.DOWN | InputFrame.LEFT, InputFrame.DOWN | InputFrame.RIGHT,
+            InputFrame.LEFT, InputFrame.RIGHT, InputFrame.NONE
+    };
+
+    private final BulletPool trial = new BulletPool();  // Scratch bullet for Bullet.update()
+    private BotView view;  // During decide() only
+    private final int[] near = new int[GameWorld.MAX_PLAYERS];  // Enemies in AIM_RANGE
+    private int nearCount;
+    private Maze maze;
+    private FlowField field;  // Leads to the nearest enemy, targets are player indices
+
+    // Predicted paths of the bullets being dodged, DODGE_TICKS positions each
+    private final float[] threatX = new float[MAX_DODGED * DODGE_TICKS];
+    private final float[] threatY = new float[MAX_DODGED * DODGE_TICKS];
+    private final float[] threatReach = new float[MAX_DODGED];
+    private final float[] threatDistance = new float[MAX_DODGED];  // Squared, while choosing them
+    private final int[] threats = new int[MAX_DODGED];  // Bullet indices in the view
+    private final int[] threatTicks = new int[MAX_DODGED];  // Until each expires
+    private int threatCount;
+
+    // The aim search, carried over between ticks
+    private int target = -1;
+    private float searchBearing;
+    private int searchStep = 0;  // Next of the 2 * AIM_STEPS + 1 angles, 0 when starting a pass
+    private float searchBest;
+    private int searchBestTicks;
+    private float aimAngle = Float.NaN;  // Quickest hit of the last finished pass, NaN if none
+
+    private long lastFireTick = Long.MIN_VALUE / 2;
+    private int lastInput;
+    private int stuckTicks, reverseTicks;
+
+    @Override
+    public int decide(BotView view, int me, long deadline) {
+        if (!view.alive[me]) {
+            aimAngle = Float.NaN;
+            searchStep = 0;
+            return lastInput = InputFrame.NONE;
+        }
+        this.view = view;
+        if (view.maze != maze) {
+            maze = view.maze;
+            field = new FlowField(maze);
+            field.setTargetCount(GameWorld.MAX_PLAYERS);
+            aimAngle = Float.NaN;
+            searchStep = 0;
+        }
+        findEnemies(me);
+        if (System.nanoTime() < deadline) field.update();  // Otherwise steer by the old paths for a tick
+        int nearest = field.getNearest(rowOf(view.y[me]), colOf(view.x[me]));
+        target = nearest >= 0 && view.alive[nearest] ? nearest : nearestByDistance(me);
+
+        int move = dodge(me, hunt(me), deadline);
+        boolean fire = shouldFire(view.tick, me, deadline);
+        search(me, deadline);
+        this.view = null;
+        lastInput = move;
+        return fire ? move | InputFrame.FIRE : move;
+    }
+
+    private void findEnemies(int me) {
+        nearCount = 0;
+        for (int id = 0; id < GameWorld.MAX_PLAYERS; id++) {
+            if (!view.alive[id] || id == me) {
+                field.removeTarget(id);
+                continue;
+            }
+            field.setTarget(id, rowOf(view.y[id]), colOf(view.x[id]));
+            if (distanceSq(view.x[id], view.y[id], me) < AIM_RANGE * AIM_RANGE) near[nearCount++] = id;
+        }
+    }
+
+    private boolean shouldFire(long tick, int me, long deadline) {
+        if (nearCount == 0 || tick - lastFireTick < FIRE_COOLDOWN_TICKS || !barrelClear(me)) return false;
+        if (System.nanoTime() >= deadline) return false;  // The trial shot waits for next tick
+        if (trace(me, view.angle[me]) < 0) {
+            // Lined up on the search's angle and still no hit; it was stale
+            if (!Float.isNaN(aimAngle) && Math.abs(normalize(aimAngle - view.angle[me])) <= Tank.ROTATION_SPEED / 2) {
+                aimAngle = Float.NaN;
+            }
+            return false;
+        }
+        lastFireTick = tick;
+        return true;
+    }
+
+    // Tank.fire() blows up a tank whose barrel is in a wall
+    private boolean barrelClear(int me) {
+        float cos = (float) Math.cos(view.angle[me]), sin = (float) Math.sin(view.angle[me]);
+        float r = Bullet.RADIUS;
+        for (float d = 0; d < MUZZLE; d++) {
+            if (!maze.isAreaFree(view.x[me] + cos * d - r, view.y[me] + sin * d - r, (int) (r * 2), (int) (r * 2))) return false;
+        }
+        return true;
+    }
+
+    // The move towards the nearest enemy: along the flow field, or turning to a found shot
+    private int hunt(int me) {
+        float x = view.x[me], y = view.y[me], angle = view.angle[me];
+        boolean moved = Math.abs(x - view.prevX[me]) + Math.abs(y - view.prevY[me]) > 0.3f;
+        stuckTicks = (lastInput & (InputFrame.UP | InputFrame.DOWN)) != 0 && !moved ? stuckTicks + 1 : 0;
+        if (stuckTicks > STUCK_TICKS) {
+            stuckTicks = 0;
+            reverseTicks = REVERSE_TICKS;
+        }
+        if (reverseTicks > 0) {
+            reverseTicks--;
+            return InputFrame.DOWN | (me % 2 == 0 ? InputFrame.LEFT : InputFrame.RIGHT);
+        }
+
+        if (target < 0) return InputFrame.NONE;
+        if (!Float.isNaN(aimAngle)) return turnTo(angle, aimAngle, false);
+
+        float toX, toY;
+        int row = rowOf(y), col = colOf(x);
+        int dir = field.getDirection(row, col);
+        if (dir < 0) {
+            // In the target's cell, or walled off from it
+            toX = view.x[target];
+            toY = view.y[target];
+        } else {
+            float centerX = (col + 0.5f) * CELL, centerY = (row + 0.5f) * CELL;
+            float across = Maze.ROW_STEP[dir] != 0 ? x - centerX : y - centerY;
+            if (Math.abs(across) > CORNER_SLACK) {
+                // Back to the middle first, or the hitbox catches the corner on the way out
+                toX = centerX;
+                toY = centerY;
+            } else {
+                toX = centerX + Maze.COL_STEP[dir] * CELL;
+                toY = centerY + Maze.ROW_STEP[dir] * CELL;
+            }
+        }
+        return turnTo(angle, (float) Math.atan2(toY - y, toX - x), true);
+    }
+
+    private int nearestByDistance(int me) {
+        int nearest = -1;
+        float best = Float.MAX_VALUE;
+        for (int id = 0; id < GameWorld.MAX_PLAYERS; id++) {
+            if (!view.alive[id] || id == me) continue;
+            float d = distanceSq(view.x[id], view.y[id], me);
+            if (d < best) {
+                best = d;
+                nearest = id;
+            }
+        }
+        return nearest;
+    }
+
+    // Turns towards an angle, and if drive, drives on once roughly facing it
+    private static int turnTo(float angle, float to, boolean drive) {
+        float diff = normalize(to - angle);
+        int input = diff < -Tank.ROTATION_SPEED / 2 ? InputFrame.LEFT
+                : diff > Tank.ROTATION_SPEED / 2 ? InputFrame.RIGHT : InputFrame.NONE;
+        if (drive && Math.abs(diff) < DRIVE_ANGLE) input |= InputFrame.UP;
+        return input;
+    }
+
+    // Keeps the planned move unless a bullet would meet it, then takes whichever move avoids
+    // the bullets longest of those tried before the deadline
+    private int dodge(int me, int planned, long deadline) {
+        predictThreats(me, deadline);
+        if (threatCount == 0 || System.nanoTime() >= deadline) return planned;
+
+        int best = planned;
+        int bestTicks = ticksUntilHit(me, planned);
+        for (int i = 0; i < DODGES.length && bestTicks <= DODGE_TICKS && System.nanoTime() < deadline; i++) {
+            int ticks = ticksUntilHit(me, DODGES[i]);
+            if (ticks > bestTicks) {
+                best = DODGES[i];
+                bestTicks = ticks;
+            }
+        }
+        return best;
+    }
+
+    // Picks the MAX_DODGED bullets nearest the tank and runs each DODGE_TICKS ahead, nearest
+    // first; those not reached by the deadline are left out
+    private void predictThreats(int me, long deadline) {
+        threatCount = 0;
+        for (int bullet = 0; bullet < view.bulletCount; bullet++) {
+            float d = distanceSq(view.bulletX[bullet], view.bulletY[bullet], me);
+            if (d > DODGE_RANGE * DODGE_RANGE) continue;
+            int slot = threatCount;
+            if (threatCount == MAX_DODGED) {
+                slot = 0;
+                for (int i = 1; i < MAX_DODGED; i++) {
+                    if (threatDistance[i] > threatDistance[slot]) slot = i;
+                }
+                if (d >= threatDistance[slot]) continue;
+            } else {
+                threatCount++;
+            }
+            threats[slot] = bullet;
+            threatDistance[slot] = d;
+        }
+
+        sortThreats();
+        for (int s = 0; s < threatCount; s++) {
+            if (System.nanoTime() >= deadline) {
+                threatCount = s;
+                break;
+            }
+            int bullet = threats[s];
+            float dx = view.bulletDx[bullet], dy = view.bulletDy[bullet];
+            trial.clear();
+            trial.add(view.bulletX[bullet], view.bulletY[bullet], (float) Math.atan2(dy, dx),
+                    (float) Math.hypot(dx, dy), Bullet.LIFETIME, view.bulletSize[bullet], -1, false);
+            threatReach[s] = Tank.SIZE / 2f + Bullet.BASE_SIZE * view.bulletSize[bullet] / 2f + DODGE_MARGIN;
+            threatTicks[s] = DODGE_TICKS;
+            for (int t = 0; t < DODGE_TICKS; t++) {
+                if (!Bullet.update(trial, 0, maze)) {
+                    threatTicks[s] = t;
+                    break;
+                }
+                threatX[s * DODGE_TICKS + t] = trial.getX(0);
+                threatY[s * DODGE_TICKS + t] = trial.getY(0);
+            }
+        }
+    }
+
+    // Insertion sort of the few threats by distance
+    private void sortThreats() {
+        for (int i = 1; i < threatCount; i++) {
+            int bullet = threats[i];
+            float d = threatDistance[i];
+            int j = i;
+            for (; j > 0 && threatDistance[j - 1] > d; j--) {
+                threats[j] = threats[j - 1];
+                threatDistance[j] = threatDistance[j - 1];
+            }
+            threats[j] = bullet;
+            threatDistance[j] = d;
+        }
+    }
+
+    // Ticks until a threat reaches the tank holding this move, DODGE_TICKS + 1 if none does.
+    // Moves the way Tank.update() does.
+    private int ticksUntilHit(int me, int move) {
+        float x = view.x[me], y = view.y[me], angle = view.angle[me];
+        int half = Tank.HITBOX_SIZE / 2;
+        for (int t = 0; t < DODGE_TICKS; t++) {
+            if (InputFrame.left(move)) angle -= Tank.ROTATION_SPEED;
+            if (InputFrame.right(move)) angle += Tank.ROTATION_SPEED;
+            int forward = InputFrame.up(move) ? 1 : InputFrame.down(move) ? -1 : 0;
+            if (forward != 0) {
+                float nextX = x + forward * (float) Math.cos(angle) * Tank.SPEED;
+                float nextY = y + forward * (float) Math.sin(angle) * Tank.SPEED;
+                if (maze.isAreaFree(nextX - half, nextY - half, Tank.HITBOX_SIZE, Tank.HITBOX_SIZE)) {
+                    x = nextX;
+                    y = nextY;
+                }
+            }
+
+            for (int s = 0; s < threatCount; s++) {
+                if (t >= threatTicks[s]) continue;
+                float dx = threatX[s * DODGE_TICKS + t] - x, dy = threatY[s * DODGE_TICKS + t] - y;
+                if (dx * dx + dy * dy < threatReach[s] * threatReach[s]) return t + 1;
+            }
+        }
+        return DODGE_TICKS + 1;
+    }
+
+    // Tries trial shots either side of the bearing to the target, nearest first, until the
+    // deadline; the pass goes on next tick from where it stopped
+    private void search(int me, long deadline) {
+        if (target < 0 || nearCount == 0) {
+            aimAngle = Float.NaN;
+            searchStep = 0;
+            return;
+        }
+        if (searchStep == 0) {
+            // Only angles the tank can turn to exactly, so lined up it fires the shot that was tried
+            float angle = view.angle[me];
+            float bearing = (float) Math.atan2(view.y[target] - view.y[me], view.x[target] - view.x[me]);
+            searchBearing = angle + Math.round(normalize(bearing - angle) / Tank.ROTATION_SPEED) * Tank.ROTATION_SPEED;
+            searchBestTicks = Integer.MAX_VALUE;
+        }
+        while (searchStep <= 2 * AIM_STEPS && System.nanoTime() < deadline) {
+            int k = (searchStep + 1) / 2 * (searchStep % 2 == 0 ? -1 : 1);  // 0, 1, -1, 2, -2, ...
+            float angle = searchBearing + k * Tank.ROTATION_SPEED;
+            int ticks = trace(me, angle);
+            if (ticks >= 0 && ticks < searchBestTicks) {
+                searchBest = angle;
+                searchBestTicks = ticks;
+            }
+            searchStep++;
+        }
+        if (searchStep > 2 * AIM_STEPS) {
+            aimAngle = searchBestTicks == Integer.MAX_VALUE ? Float.NaN : searchBest;
+            searchStep = 0;
+        }
+    }
+
+    // Ticks a shot fired now along the angle takes to reach an enemy, or -1 if it expires
+    // or comes back at this tank first. Enemies are led by their last tick's movement.
+    private int trace(int me, float angle) {
+        float cos = (float) Math.cos(angle), sin = (float) Math.sin(angle);
+        trial.clear();
+        trial.add(view.x[me] + cos * MUZZLE, view.y[me] + sin * MUZZLE, angle, Bullet.SPEED, Bullet.LIFETIME, 1f, -1, false);
+        float reach = Tank.SIZE / 2f + Bullet.BASE_SIZE / 2f;
+        float selfReach = reach + DODGE_MARGIN;
+
+        for (int t = 1; t <= AIM_TICKS; t++) {
+            if (!Bullet.update(trial, 0, maze)) return -1;
+            float x = trial.getX(0), y = trial.getY(0);
+            if (t > SELF_GRACE_TICKS && distanceSq(x, y, me) < selfReach * selfReach) return -1;
+
+            int lead = Math.min(t, LEAD_TICKS);
+            for (int i = 0; i < nearCount; i++) {
+                int enemy = near[i];
+                float dx = view.x[enemy] + (view.x[enemy] - view.prevX[enemy]) * lead - x;
+                float dy = view.y[enemy] + (view.y[enemy] - view.prevY[enemy]) * lead - y;
+                if (dx * dx + dy * dy < reach * reach) return t;
+            }
+        }
+        return -1;
+    }
+
+    private int rowOf(float y) {
+        return Math.max(0, Math.min(maze.getRows() - 1, (int) (y / CELL)));
+    }
+
+    private int colOf(float x) {
+        return Math.max(0, Math.min(maze.getCols() - 1, (int) (x / CELL)));
+    }
+
+    private float distanceSq(float x, float y, int player) {
+        float dx = view.x[player] - x, dy = view.y[player] - y;
+        return dx * dx + dy * dy;
+    }
+
+    // Into -PI..PI
+    private static float normalize(float angle) {
+        return (float) Math.IEEEremainder(angle, 2 * Math.PI);
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Asks the {@link TankController}s of the seats without a human for their input each tick,
+ * within BUDGET_NANOS of the tick all told, so even a server full of bots keeps its 60 Hz.
+ * A handful decide on the calling thread; from PARALLEL_BOTS on they are split between
+ * daemon worker threads. Either way decide() only returns once every bot has answered, so
+ * the one {@link BotView} they share is never refreshed while they look at it.
+ *
+ * Each bot's deadline is its share of the budget on the thread it runs on. A bot that
+ * overruns delays the ones after it on that thread, and any still waiting when the budget is
+ * spent are skipped for the tick and keep their last input.
+ *
+ * -Dtanktrouble.bots=false keeps bots out of free seats altogether, leaving them empty;
+ * -Dtanktrouble.botBudget=MICROS sets the budget; -Dtanktrouble.botStats=true prints the
+ * time the bots took and how many were skipped every BOT_STATS_TICKS.
+ */
+public class BotPool implements Closeable {
+    static final boolean ENABLED = !"false".equals(System.getProperty("tanktrouble.bots"));
+    private static final long BUDGET_NANOS = Integer.getInteger("tanktrouble.botBudget", 4000) * 1000L;
+    private static final long MAX_SLICE_NANOS = 1_000_000;  // Even a lone bot gets no more
+    private static final int PARALLEL_BOTS = 8;
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final boolean BOT_STATS = Boolean.getBoolean("tanktrouble.botStats");
+    private static final int BOT_STATS_TICKS = 5 * GameWorld.TICKS_PER_SECOND;
+
+    private final TankController[] controllers = new TankController[GameWorld.MAX_PLAYERS];
+    private final int[] lastInputs = new int[GameWorld.MAX_PLAYERS];
+    private final int[] bots = new int[GameWorld.MAX_PLAYERS];  // Players with a controller, this tick
+    private int botCount;
+    private ExecutorService workers;  // Started with the first tick that needs it
+    private final List<Callable<Integer>> tasks = new ArrayList<>();
+
+    private final BotView view = new BotView();  // Refreshed each tick rather than captured anew
+
+    // Set by decide() for the tasks, which the executor hands over safely
+    private long start;
+    private long slice;
+    private int threads;
+    private int rotation;  // Bots are started from a different one each tick, so skips go round
+
+    // Statistics, caller only, see BOT_STATS
+    private long statsTicks, statsNanos, statsMaxNanos;
+    private int statsSkipped;
+
+    // Null hands the player back to whoever else fills in its inputs
+    public void setController(int player, TankController controller) {
+        controllers[player] = controller;
+        lastInputs[player] = InputFrame.NONE;
+    }
+
+    public TankController getController(int player) {
+        return controllers[player];
+    }
+
+    // Gives players from..to-1 a BotController each, and the rest none
+    public void setBots(int from, int to) {
+        for (int i = 0; i < controllers.length; i++) {
+            boolean bot = i >= from && i < to;
+            if (bot != controllers[i] instanceof BotController) {
+                setController(i, bot ? new BotController() : null);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (TankController controller : controllers) {
+            if (controller != null) return false;
+        }
+        return true;
+    }
+
+    // Fills in the inputs of every player with a controller from the world after the last
+    // tick; game loop thread only
+    public void decide(GameWorld world, int[] inputs) {
+        botCount = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            if (controllers[i] != null) bots[botCount++] = i;
+        }
+        if (botCount == 0) return;
+
+        view.update(world);
+        rotation = (rotation + 1) % botCount;
+        start = System.nanoTime();
+        threads = botCount < PARALLEL_BOTS ? 1 : WORKERS;
+        slice = Math.min(MAX_SLICE_NANOS, BUDGET_NANOS / ((botCount + threads - 1) / threads));
+        int skipped = 0;
+        if (threads == 1) {
+            skipped = decide(0);
+        } else {
+            if (workers == null) startWorkers();
+            try {
+                for (Future<Integer> done : workers.invokeAll(tasks)) {
+                    skipped += done.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+            }
+        }
+        for (int i = 0; i < botCount; i++) {
+            inputs[bots[i]] = lastInputs[bots[i]];
+        }
+        if (BOT_STATS) recordStats(System.nanoTime() - start, skipped);
+    }
+
+    @Override
+    public void close() {
+        if (workers != null) workers.shutdownNow();
+        workers = null;
+    }
+
+    private void startWorkers() {
+        workers = Executors.newFixedThreadPool(WORKERS, task -> {
+            Thread thread = new Thread(task, "Bots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int w = 0; w < WORKERS; w++) {
+            int first = w;
+            tasks.add(() -> decide(first));
+        }
+    }
+
+    // Runs every threads-th bot from the first; returns how many were skipped
+    private int decide(int first) {
+        int skipped = 0;
+        for (int i = first; i < botCount; i += threads) {
+            int player = bots[(i + rotation) % botCount];
+            long now = System.nanoTime();
+            if (now - start >= BUDGET_NANOS) {
+                lastInputs[player] &= InputFrame.MOVEMENT;  // Held, but a press isn't repeated
+                skipped++;
+                continue;
+            }
+            lastInputs[player] = controllers[player].decide(view, player, now + slice);
+        }
+        return skipped;
+    }
+
+    private void recordStats(long nanos, int skipped) {
+        statsTicks++;
+        statsNanos += nanos;
+        statsMaxNanos = Math.max(statsMaxNanos, nanos);
+        statsSkipped += skipped;
+        if (statsTicks == BOT_STATS_TICKS) {
+            System.out.printf("bots: %d, mean %.2f ms, max %.2f ms, skipped %d of %d decisions%n",
+                    botCount, statsNanos / 1e6 / statsTicks, statsMaxNanos / 1e6, statsSkipped, statsTicks * botCount);
+            statsTicks = statsNanos = statsMaxNanos = 0;
+            statsSkipped = 0;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+/**
+ * What a {@link TankController} is shown each tick: the world after the last tick, copied
+ * into parallel arrays the way {@link BulletPool} keeps bullets. {@link BotPool} refreshes
+ * one view in place every tick, so once the arrays have grown to the match, deciding
+ * allocates nothing. Only valid during decide(); nothing but the maze should be kept.
+ */
+public final class BotView {
+    long tick;
+    Maze maze;  // The world's publishedCopy(), so it is never changed and may be kept
+
+    // Per player, valid for indices below GameWorld.MAX_PLAYERS where alive
+    final boolean[] alive = new boolean[GameWorld.MAX_PLAYERS];
+    final float[] x = new float[GameWorld.MAX_PLAYERS], y = new float[GameWorld.MAX_PLAYERS];
+    final float[] prevX = new float[GameWorld.MAX_PLAYERS], prevY = new float[GameWorld.MAX_PLAYERS];
+    final float[] angle = new float[GameWorld.MAX_PLAYERS];
+
+    // Per bullet, valid for indices below bulletCount
+    int bulletCount;
+    float[] bulletX = new float[0], bulletY = new float[0];
+    float[] bulletDx = new float[0], bulletDy = new float[0];
+    float[] bulletSize = new float[0];
+
+    // Copies the world as it stands; game loop thread only
+    void update(GameWorld world) {
+        tick = world.getTick();
+        maze = world.getMaze().publishedCopy();
+        for (int i = 0; i < GameWorld.MAX_PLAYERS; i++) {
+            Tank tank = i < world.getPlayerCount() ? world.getPlayer(i) : null;
+            alive[i] = tank != null && !tank.isDestroyed();
+            if (!alive[i]) continue;
+            x[i] = tank.getX();
+            y[i] = tank.getY();
+            prevX[i] = tank.getPrevX();
+            prevY[i] = tank.getPrevY();
+            angle[i] = tank.getAngle();
+        }
+
+        BulletPool bullets = world.getBullets();
+        bulletCount = bullets.count();
+        if (bulletCount > bulletX.length) {
+            int capacity = Math.max(bulletCount, bulletX.length * 2);
+            bulletX = Arrays.copyOf(bulletX, capacity);
+            bulletY = Arrays.copyOf(bulletY, capacity);
+            bulletDx = Arrays.copyOf(bulletDx, capacity);
+            bulletDy = Arrays.copyOf(bulletDy, capacity);
+            bulletSize = Arrays.copyOf(bulletSize, capacity);
+        }
+        for (int i = 0; i < bulletCount; i++) {
+            bulletX[i] = bullets.getX(i);
+            bulletY[i] = bullets.getY(i);
+            bulletDx[i] = bullets.getDx(i);
+            bulletDy[i] = bullets.getDy(i);
+            bulletSize[i] = bullets.getSize(i);
+        }
+    }
+}
@@ -1,130 +1,175 @@
-import java.awt.*;
-
-public class Bullet {
+/**
+ * Bullet physics, applied to entries of a {@link BulletPool}.
+ */
+public final class Bullet {
     // Constants
-    protected static final float SPEED = 3f;
-    private static final float RADIUS = 3f;
-    private static final int MAX_LIFETIME = 600;
-    private static final int BASE_SIZE = 7;
-
-    // Core bullet properties
-    protected float x, y;          // Position
-    protected float dx, dy;        // Movement vector
-    protected int lifetime;        // Frames alive
-    protected boolean active;      // Active state
-    private int maxLifetime = MAX_LIFETIME;
-    private float sizeMultiplier = 1.0f;
-
-    // References
-    public final Maze maze;
-    protected final GamePanel gamePanel;
-    protected final Tank owner;    // Null if environment bullet
-
-    public Bullet(float x, float y, float angle, Maze maze, float speed, int customLifetime,
-                  float sizeMultiplier, GamePanel gamePanel) {
-        this(x, y, angle, maze, speed, customLifetime, sizeMultiplier, gamePanel, null);
-    }
+    static final float SPEED = 3f;
+    static final float RADIUS = 3f;
+    static final int LIFETIME = 600;
+    static final int BASE_SIZE = 7;
+    private static final int MAX_BOUNCES = 4;  // Per tick, the rest of the move is dropped after that
 
-    public Bullet(float x, float y, float angle, Maze maze, float speed, int customLifetime,
-                  float sizeMultiplier, GamePanel gamePanel, Tank owner) {
-        this.x = x;
-        this.y = y;
-        this.dx = (float) Math.cos(angle) * speed;
-        this.dy = (float) Math.sin(angle) * speed;
-        this.maze = maze;
-        this.gamePanel = gamePanel;
-        this.lifetime = 0;
-        this.active = true;
-        this.maxLifetime = customLifetime;
-        this.sizeMultiplier = sizeMultiplier;
-        this.owner = owner;
+    private Bullet() {
     }
 
-    public void draw(Graphics g) {
-        int drawSize = (int) (BASE_SIZE * sizeMultiplier);
-        g.setColor(Color.DARK_GRAY);
-        g.fillOval((int) x - drawSize / 2, (int) y - drawSize / 2, drawSize, drawSize);
+    public static boolean checkCollisionWithTank(BulletPool bullets, int i, float tankX, float tankY, float radius) {
+        float combinedRadius = radius + (BASE_SIZE * bullets.sizeMultiplier[i]) / 2f;
+        float dx = tankX - bullets.x[i];
+        float dy = tankY - bullets.y[i];
+        return dx * dx + dy * dy < combinedRadius * combinedRadius;
     }
 
-    public boolean isActive() {
-        return active;
-    }
-
-    public float getSize() {
-        return sizeMultiplier;
-    }
-
-    public boolean checkCollisionWithTank(float tankX, float tankY, float radius) {
-        if (!active) return false; // only collide if active
-        float combinedRadius = radius + (BASE_SIZE * sizeMultiplier) / 2f;
-        return Math.hypot(tankX - x, tankY - y) < combinedRadius;
-    }
-
-    public void update(Maze maze) {
-        if (!active) return;
-
-        float bulletRadius = RADIUS * sizeMultiplier;  // Scale collision radius with size
-
-        float newX = x + dx;
-        float newY = y + dy;
-        boolean bounced = false;
-
-        int steps = (int) (Math.max(Math.abs(dx), Math.abs(dy))) + 1;
-        for (int i = 0; i <= steps && !bounced; i++) {
-            float t = i / (float) steps;
-            float testX = x + t * dx;
-            float testY = y + t * dy;
-
-            int r = (int) testY / GamePanel.CELL_SIZE;
-            int c = (int) testX / GamePanel.CELL_SIZE;
+    // Moves bullet i by one tick, bouncing it off walls. Returns false once it has expired.
+    //
+    // The bullet is swept as a circle against the wall segments near its path, so it can't
+    // tunnel through walls or corners however fast it goes. After each hit the rest of the
+    // move continues in the reflected direction.
+    public static boolean update(BulletPool bullets, int i, Maze maze) {
+        float x = bullets.x[i];
+        float y = bullets.y[i];
+        float dx = bullets.dx[i];
+        float dy = bullets.dy[i];
+        bullets.prevX[i] = x;
+        bullets.prevY[i] = y;
+
+        float radius = RADIUS * bullets.sizeMultiplier[i];  // Scale collision radius with size
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        float remaining = 1f;  // Fraction of this tick's move still to do
+
+        for (int bounce = 0; bounce <= MAX_BOUNCES && remaining > 0f; bounce++) {
+            float moveX = dx * remaining;
+            float moveY = dy * remaining;
+
+            // Only walls of cells touching the swept circle's bounding box can be hit. Truncating
+            // is fine for the low ends since anything below zero is clamped to 0 anyway.
+            int firstRow = Math.max(0, (int) ((Math.min(y, y + moveY) - radius) / GameWorld.CELL_SIZE));
+            int lastRow = Math.min(rows - 1, (int) ((Math.max(y, y + moveY) + radius) / GameWorld.CELL_SIZE));
+            int firstCol = Math.max(0, (int) ((Math.min(x, x + moveX) - radius) / GameWorld.CELL_SIZE));
+            int lastCol = Math.min(cols - 1, (int) ((Math.max(x, x + moveX) + radius) / GameWorld.CELL_SIZE));
+
+            float hitTime = Float.POSITIVE_INFINITY;
+            boolean hitVertical = false;
+            float hitLine = 0, hitFrom = 0, hitTo = 0;
+
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int c = firstCol; c <= lastCol; c++) {
+                    // Shared walls are tested once, as the top or left wall of the lower or
+                    // right cell, except on the far edges of the box
+                    int walls = maze.getCellWalls(r, c);
+                    if (r < lastRow) walls &= ~Maze.WALL_BOTTOM;
+                    if (c < lastCol) walls &= ~Maze.WALL_RIGHT;
+                    if (walls == 0) continue;
+                    float left = c * GameWorld.CELL_SIZE;
+                    float top = r * GameWorld.CELL_SIZE;
+
+                    for (int dir = 0; dir < 4; dir++) {
+                        if ((walls & (1 << dir)) == 0) continue;
+                        // Vertical walls are tested with x and y swapped
+                        boolean vertical = (dir & 1) != 0;
+                        float line = vertical
+                                ? (dir == 1 ? left + GameWorld.CELL_SIZE : left)
+                                : (dir == 2 ? top + GameWorld.CELL_SIZE : top);
+                        float from = vertical ? top : left;
+                        float to = from + GameWorld.CELL_SIZE;
+
+                        float t = vertical
+                                ? sweep(y, x, moveY, moveX, line, from, to, radius)
+                                : sweep(x, y, moveX, moveY, line, from, to, radius);
+                        if (t < hitTime) {
+                            hitTime = t;
+                            hitVertical = vertical;
+                            hitLine = line;
+                            hitFrom = from;
+                            hitTo = to;
+                        }
+                    }
+                }
+            }
 
-            if (r < 0 || r >= GamePanel.ROWS || c < 0 || c >= GamePanel.COLS) {
-                deactivate();
-                return;
+            if (hitTime == Float.POSITIVE_INFINITY) {
+                x += moveX;
+                y += moveY;
+                break;
             }
 
-            boolean[][][] walls = maze.getWalls();
-            float cellX = c * GamePanel.CELL_SIZE;
-            float cellY = r * GamePanel.CELL_SIZE;
-
-            if (walls[r][c][0] && testY - bulletRadius < cellY) { // Top Wall
-                newY = cellY + bulletRadius;
-                dy = -dy;
-                bounced = true;
-            } else if (walls[r][c][2] && testY + bulletRadius > cellY + GamePanel.CELL_SIZE) { // Bottom wall
-                newY = cellY + GamePanel.CELL_SIZE - bulletRadius;
-                dy = -dy;
-                bounced = true;
+            // Move to the point of impact and reflect about the normal from the closest
+            // point on the wall, which also covers glancing hits on a wall's end
+            x += moveX * hitTime;
+            y += moveY * hitTime;
+            float closestX = hitVertical ? hitLine : Math.max(hitFrom, Math.min(hitTo, x));
+            float closestY = hitVertical ? Math.max(hitFrom, Math.min(hitTo, y)) : hitLine;
+            float normalX = x - closestX;
+            float normalY = y - closestY;
+            float distance = (float) Math.sqrt(normalX * normalX + normalY * normalY);
+            if (distance < 1e-4f) {
+                // Centre exactly on the wall, bounce straight back
+                normalX = -dx;
+                normalY = -dy;
+                float speed = (float) Math.sqrt(dx * dx + dy * dy);
+                normalX /= speed;
+                normalY /= speed;
+            } else {
+                normalX /= distance;
+                normalY /= distance;
             }
 
-            if (walls[r][c][3] && testX - bulletRadius < cellX) { // Left wall
-                newX = cellX + bulletRadius;
-                dx = -dx;
-                bounced = true;
-            } else if (walls[r][c][1] && testX + bulletRadius > cellX + GamePanel.CELL_SIZE) { // Right wall
-                newX = cellX + GamePanel.CELL_SIZE - bulletRadius;
-                dx = -dx;
-                bounced = true;
+            // Push out of the wall if the bullet started the move overlapping it
+            if (distance < radius) {
+                x = closestX + normalX * radius;
+                y = closestY + normalY * radius;
             }
+
+            float along = dx * normalX + dy * normalY;
+            dx -= 2 * along * normalX;
+            dy -= 2 * along * normalY;
+            remaining *= 1f - hitTime;
         }
 
-        x = newX;
-        y = newY;
-        lifetime++;
+        bullets.x[i] = x;
+        bullets.y[i] = y;
+        bullets.dx[i] = dx;
+        bullets.dy[i] = dy;
 
-        if (lifetime > maxLifetime) {
-            deactivate();
+        if (x < 0 || y < 0 || x >= cols * GameWorld.CELL_SIZE || y >= rows * GameWorld.CELL_SIZE) {
+            return false;
         }
+        return ++bullets.lifetime[i] <= bullets.maxLifetime[i];
     }
 
-    protected void deactivate() {
-        if (active) {
-            active = false;
-            dx = 0;
-            dy = 0;
-            if (owner != null) {
-                owner.bulletDeactivated(this);
+    // Time in [0, 1] at which a circle at (px, py) moving by (vx, vy) first touches the
+    // horizontal segment y = line, from <= x <= to, or infinity if it doesn't. Only counts
+    // hits while moving towards the segment; a circle already overlapping it hits at 0.
+    private static float sweep(float px, float py, float vx, float vy, float line, float from, float to, float radius) {
+        float best = Float.POSITIVE_INFINITY;
+
+        // Flat side of the segment
+        float side = py < line ? -1f : 1f;
+        if (vy * side < 0) {
+            float t = Math.max(0f, (line + side * radius - py) / vy);
+            float hitX = px + vx * t;
+            if (t <= 1f && hitX >= from && hitX <= to) {
+                return t;  // Nothing on the segment can be touched before its flat side
             }
         }
+
+        // Rounded ends, for hits that just catch a corner
+        best = Math.min(best, sweepPoint(px - from, py - line, vx, vy, radius));
+        best = Math.min(best, sweepPoint(px - to, py - line, vx, vy, radius));
+        return best;
+    }
+
+    // Time in [0, 1] at which a circle at offset (ox, oy) from a point, moving by (vx, vy),
+    // first touches that point, or infinity if it doesn't
+    private static float sweepPoint(float ox, float oy, float vx, float vy, float radius) {
+        float b = ox * vx + oy * vy;
+        if (b >= 0) return Float.POSITIVE_INFINITY;  // Moving away
+        float c = ox * ox + oy * oy - radius * radius;
+        if (c <= 0) return 0f;
+        float a = vx * vx + vy * vy;
+        float discriminant = b * b - a * c;
+        if (discriminant < 0) return Float.POSITIVE_INFINITY;
+        float t = (-b - (float) Math.sqrt(discriminant)) / a;
+        return t <= 1f ? t : Float.POSITIVE_INFINITY;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * All live bullets and missiles, stored as parallel primitive arrays.
+ * Removal swaps the last bullet into the freed slot, so indices are only stable until
+ * the next remove() and nobody should hold on to them across ticks. The arrays only grow,
+ * so once a match has warmed up firing and expiring bullets allocates nothing.
+ */
+public class BulletPool {
+    private static final int INITIAL_CAPACITY = 64;
+    static final int STATE_SIZE = 41;  // Bytes per bullet written by writeState()
+
+    // Per-bullet state, valid for indices below count
+    float[] x, y;
+    float[] prevX, prevY;  // Position at the start of the last tick, for interpolation
+    float[] dx, dy;
+    float[] sizeMultiplier;
+    int[] lifetime;        // Ticks alive
+    int[] maxLifetime;
+    int[] owner;           // Index of the firing tank, -1 if none
+    boolean[] missile;
+    boolean[] homing;
+    private int count = 0;
+
+    public BulletPool() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // Adds a bullet travelling along angle and returns its index
+    public int add(float x, float y, float angle, float speed, int maxLifetime,
+                   float sizeMultiplier, int owner, boolean missile) {
+        if (count == this.x.length) {
+            allocate(count * 2);
+        }
+
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.prevX[i] = x;
+        this.prevY[i] = y;
+        this.dx[i] = (float) StrictMath.cos(angle) * speed;
+        this.dy[i] = (float) StrictMath.sin(angle) * speed;
+        this.sizeMultiplier[i] = sizeMultiplier;
+        this.lifetime[i] = 0;
+        this.maxLifetime[i] = maxLifetime;
+        this.owner[i] = owner;
+        this.missile[i] = missile;
+        this.homing[i] = false;
+        return i;
+    }
+
+    // Removes bullet i by moving the last bullet into its slot
+    public void remove(int i) {
+        int last = --count;
+        if (i == last) return;
+
+        x[i] = x[last];
+        y[i] = y[last];
+        prevX[i] = prevX[last];
+        prevY[i] = prevY[last];
+        dx[i] = dx[last];
+        dy[i] = dy[last];
+        sizeMultiplier[i] = sizeMultiplier[last];
+        lifetime[i] = lifetime[last];
+        maxLifetime[i] = maxLifetime[last];
+        owner[i] = owner[last];
+        missile[i] = missile[last];
+        homing[i] = homing[last];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public float getX(int i) { return x[i]; }
+    public float getY(int i) { return y[i]; }
+    public float getPrevX(int i) { return prevX[i]; }
+    public float getPrevY(int i) { return prevY[i]; }
+    public float getDx(int i) { return dx[i]; }
+    public float getDy(int i) { return dy[i]; }
+    public float getSize(int i) { return sizeMultiplier[i]; }
+    public int getOwner(int i) { return owner[i]; }
+    public boolean isMissile(int i) { return missile[i]; }
+    public boolean isHoming(int i) { return homing[i]; }
+
+    // For GameWorld.saveState()
+    void writeState(ByteBuffer out) {
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putFloat(x[i]).putFloat(y[i]).putFloat(prevX[i]).putFloat(prevY[i]);
+            out.putFloat(dx[i]).putFloat(dy[i]).putFloat(sizeMultiplier[i]);
+            out.putInt(lifetime[i]).putInt(maxLifetime[i]).putInt(owner[i]);
+            out.put((byte) ((missile[i] ? 1 : 0) | (homing[i] ? 2 : 0)));
+        }
+    }
+
+    void readState(ByteBuffer in) {
+        int n = in.getInt();
+        if (n > x.length) {
+            allocate(Math.max(n, x.length * 2));
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = in.getFloat();
+            y[i] = in.getFloat();
+            prevX[i] = in.getFloat();
+            prevY[i] = in.getFloat();
+            dx[i] = in.getFloat();
+            dy[i] = in.getFloat();
+            sizeMultiplier[i] = in.getFloat();
+            lifetime[i] = in.getInt();
+            maxLifetime[i] = in.getInt();
+            owner[i] = in.getInt();
+            byte flags = in.get();
+            missile[i] = (flags & 1) != 0;
+            homing[i] = (flags & 2) != 0;
+        }
+        count = n;
+    }
+
+    private void allocate(int capacity) {
+        if (x == null) {
+            x = new float[capacity];
+            y = new float[capacity];
+            prevX = new float[capacity];
+            prevY = new float[capacity];
+            dx = new float[capacity];
+            dy = new float[capacity];
+            sizeMultiplier = new float[capacity];
+            lifetime = new int[capacity];
+            maxLifetime = new int[capacity];
+            owner = new int[capacity];
+            missile = new boolean[capacity];
+            homing = new boolean[capacity];
+            return;
+        }
+
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        sizeMultiplier = Arrays.copyOf(sizeMultiplier, capacity);
+        lifetime = Arrays.copyOf(lifetime, capacity);
+        maxLifetime = Arrays.copyOf(maxLifetime, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        missile = Arrays.copyOf(missile, capacity);
+        homing = Arrays.copyOf(homing, capacity);
+    }
+}
@@ -0,0 +1,114 @@
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * A set of screen rectangles that need repainting. Rectangles that overlap or nearly touch
+ * are merged, so a frame is repainted as a few compact regions rather than as one union
+ * spanning every moving thing on screen.
+ */
+public class DirtyRegions {
+    private static final int MERGE_SLACK = 16;  // Rectangles closer than this are merged
+
+    private int[] left = new int[16], top = new int[16], right = new int[16], bottom = new int[16];
+    private int count = 0;
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public void add(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        if (count == left.length) {
+            int capacity = count * 2;
+            left = Arrays.copyOf(left, capacity);
+            top = Arrays.copyOf(top, capacity);
+            right = Arrays.copyOf(right, capacity);
+            bottom = Arrays.copyOf(bottom, capacity);
+        }
+        left[count] = x;
+        top[count] = y;
+        right[count] = x + width;
+        bottom[count] = y + height;
+        count++;
+    }
+
+    public void addAll(DirtyRegions other) {
+        for (int i = 0; i < other.count; i++) {
+            add(other.left[i], other.top[i], other.right[i] - other.left[i], other.bottom[i] - other.top[i]);
+        }
+    }
+
+    // Keeps only the parts inside 0, 0, width, height
+    public void clip(int width, int height) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int l = Math.max(0, left[i]), t = Math.max(0, top[i]);
+            int r = Math.min(width, right[i]), b = Math.min(height, bottom[i]);
+            if (l < r && t < b) {
+                left[n] = l;
+                top[n] = t;
+                right[n] = r;
+                bottom[n] = b;
+                n++;
+            }
+        }
+        count = n;
+    }
+
+    // Unions rectangles that overlap or nearly touch until no two do
+    public void merge() {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (left[j] - MERGE_SLACK > right[i] || left[i] - MERGE_SLACK > right[j]
+                            || top[j] - MERGE_SLACK > bottom[i] || top[i] - MERGE_SLACK > bottom[j]) {
+                        continue;
+                    }
+                    left[i] = Math.min(left[i], left[j]);
+                    top[i] = Math.min(top[i], top[j]);
+                    right[i] = Math.max(right[i], right[j]);
+                    bottom[i] = Math.max(bottom[i], bottom[j]);
+                    count--;
+                    left[j] = left[count];
+                    top[j] = top[count];
+                    right[j] = right[count];
+                    bottom[j] = bottom[count];
+                    j = i;  // i grew, so check everything after it again
+                    merged = true;
+                }
+            }
+        }
+    }
+
+    // Total area, counting overlaps twice
+    public long area() {
+        long area = 0;
+        for (int i = 0; i < count; i++) {
+            area += (long) (right[i] - left[i]) * (bottom[i] - top[i]);
+        }
+        return area;
+    }
+
+    // Same rectangles in the same order
+    public boolean sameAs(DirtyRegions other) {
+        if (count != other.count) return false;
+        for (int i = 0; i < count; i++) {
+            if (left[i] != other.left[i] || top[i] != other.top[i]
+                    || right[i] != other.right[i] || bottom[i] != other.bottom[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Rectangle get(int i, Rectangle out) {
+        out.setBounds(left[i], top[i], right[i] - left[i], bottom[i] - top[i]);
+        return out;
+    }
+}
@@ -0,0 +1,281 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Every live tank explosion, stored as parallel primitive arrays like {@link BulletPool}.
+ * Each explosion owns a block of PARTICLE_COUNT particles whose direction, reach, size and
+ * colour are picked when it starts. A frame is then one pass over all the particles working
+ * out where they are, and drawing is blits of pre-rendered sprites faded by a shared
+ * composite, so nothing is allocated per frame however many tanks blow up at once.
+ */
+public class ExplosionSystem {
+    private static final int PARTICLE_COUNT = 80;
+    private static final long DURATION_NANOS = 1_000_000_000L;  // 1 second
+    private static final float SIZE_SCALE = 1.8f;  // Make explosion larger than tank
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final Color[] COLORS = {
+            new Color(255, 100, 0, 220),  // Orange
+            new Color(255, 200, 0, 200),  // Yellow
+            new Color(255, 50, 0, 240)    // Red
+    };
+    private static final Color WAVE_COLOR = new Color(255, 200, 100, 100);
+    private static final BasicStroke WAVE_STROKE = new BasicStroke(4f);
+
+    // Unit vectors particles fly along, picked at random per particle
+    private static final int DIRECTIONS = 256;
+    private static final float[] DIRECTION_X = new float[DIRECTIONS];
+    private static final float[] DIRECTION_Y = new float[DIRECTIONS];
+
+    // Pre-rendered anti-aliased discs by [colour][diameter], and the core's gradient disc.
+    // Fading out is done with one of ALPHA_LEVELS composites rather than new colours.
+    private static final int MAX_PARTICLE_SIZE = 12;
+    private static final int CORE_SPRITE_SIZE = 64;
+    private static final int ALPHA_LEVELS = 64;
+    private static final BufferedImage[][] PARTICLE_SPRITES = new BufferedImage[COLORS.length][MAX_PARTICLE_SIZE + 1];
+    private static final BufferedImage CORE_SPRITE;
+    private static final AlphaComposite[] FADES = new AlphaComposite[ALPHA_LEVELS + 1];
+
+    static {
+        for (int i = 0; i < DIRECTIONS; i++) {
+            double angle = i * 2 * Math.PI / DIRECTIONS;
+            DIRECTION_X[i] = (float) Math.cos(angle);
+            DIRECTION_Y[i] = (float) Math.sin(angle);
+        }
+        for (int c = 0; c < COLORS.length; c++) {
+            for (int d = 1; d <= MAX_PARTICLE_SIZE; d++) {
+                BufferedImage sprite = new BufferedImage(d, d, BufferedImage.TYPE_INT_ARGB_PRE);
+                Graphics2D g = sprite.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(COLORS[c]);
+                g.fillOval(0, 0, d, d);
+                g.dispose();
+                PARTICLE_SPRITES[c][d] = sprite;
+            }
+        }
+
+        CORE_SPRITE = new BufferedImage(CORE_SPRITE_SIZE, CORE_SPRITE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = CORE_SPRITE.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, new Color(255, 255, 0, 150),
+                CORE_SPRITE_SIZE, CORE_SPRITE_SIZE, new Color(255, 50, 0, 50)));
+        g.fillOval(0, 0, CORE_SPRITE_SIZE, CORE_SPRITE_SIZE);
+        g.dispose();
+
+        for (int i = 0; i <= ALPHA_LEVELS; i++) {
+            FADES[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, i / (float) ALPHA_LEVELS);
+        }
+    }
+
+    // Per-explosion state, valid for indices below count
+    private float[] x, y;
+    private float[] size;
+    private long[] startNanos;
+    private float[] progress;  // 0 to 1 through the animation, as of the last update()
+    private int count = 0;
+
+    // Per-particle state; explosion i owns indices [i * PARTICLE_COUNT, (i + 1) * PARTICLE_COUNT)
+    private float[] dirX, dirY;
+    private float[] reach;         // Distance travelled by the end
+    private float[] particleSize;  // Diameter at the start
+    private byte[] color;          // Index into COLORS
+    private int[] drawX, drawY, drawSize;  // Where to draw, as of the last update()
+
+    // Explosions added from other threads, started by the next update()
+    private float[] pendingX = new float[INITIAL_CAPACITY], pendingY = new float[INITIAL_CAPACITY];
+    private float[] pendingSize = new float[INITIAL_CAPACITY];
+    private long[] pendingStart = new long[INITIAL_CAPACITY];
+    private int pendingCount = 0;
+
+    private final GameRandom random = new GameRandom(GameRandom.newSeed(), GameRandom.EFFECTS);
+
+    public ExplosionSystem() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    // Starts an explosion at (x, y) for a tank of the given size; safe from any thread
+    public synchronized void add(float x, float y, float size) {
+        if (pendingCount == pendingX.length) {
+            int capacity = pendingCount * 2;
+            pendingX = Arrays.copyOf(pendingX, capacity);
+            pendingY = Arrays.copyOf(pendingY, capacity);
+            pendingSize = Arrays.copyOf(pendingSize, capacity);
+            pendingStart = Arrays.copyOf(pendingStart, capacity);
+        }
+        pendingX[pendingCount] = x;
+        pendingY[pendingCount] = y;
+        pendingSize[pendingCount] = size * SIZE_SCALE;
+        pendingStart[pendingCount] = System.nanoTime();
+        pendingCount++;
+    }
+
+    // Makes particle layouts follow the match seed, see GameRandom
+    public synchronized void setSeed(long matchSeed) {
+        random.setSeed(matchSeed, GameRandom.EFFECTS);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public float getX(int i) { return x[i]; }
+    public float getY(int i) { return y[i]; }
+
+    // How far from (x, y) explosion i can draw: furthest particle plus its size
+    public float getExtent(int i) {
+        return size[i] * 1.2f + MAX_PARTICLE_SIZE;
+    }
+
+    // Advances every explosion to time now, dropping finished ones; once per frame
+    public void update(long now) {
+        startPending();
+
+        // Downwards, so whichever explosion is swapped into a removed slot is already done
+        for (int i = count - 1; i >= 0; i--) {
+            float t = (now - startNanos[i]) / (float) DURATION_NANOS;
+            if (t >= 1f) {
+                remove(i);
+                continue;
+            }
+            t = Math.max(0f, t);
+            progress[i] = t;
+
+            float cx = x[i], cy = y[i];
+            float shrink = 1f - t * 0.5f;
+            int end = (i + 1) * PARTICLE_COUNT;
+            for (int p = i * PARTICLE_COUNT; p < end; p++) {
+                float distance = reach[p] * t;
+                float diameter = particleSize[p] * shrink;
+                drawX[p] = (int) (cx + dirX[p] * distance - diameter / 2);
+                drawY[p] = (int) (cy + dirY[p] * distance - diameter / 2);
+                drawSize[p] = (int) diameter;
+            }
+        }
+    }
+
+    // Draws the explosions reaching into area, in world coordinates, as of the last update()
+    public void draw(Graphics2D g, Rectangle area) {
+        if (count == 0) return;
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setStroke(WAVE_STROKE);
+        g2d.setColor(WAVE_COLOR);
+
+        for (int i = 0; i < count; i++) {
+            float extent = getExtent(i);
+            float cx = x[i], cy = y[i];
+            if (cx + extent < area.x || cx - extent >= area.x + area.width
+                    || cy + extent < area.y || cy - extent >= area.y + area.height) continue;
+
+            float t = progress[i];
+            int level = Math.round((1f - t) * ALPHA_LEVELS);
+            if (level == 0) continue;
+            g2d.setComposite(FADES[level]);
+
+            // Expanding shockwave, growing to twice the size
+            float waveSize = size[i] * t * 2f;
+            g2d.drawOval((int) (cx - waveSize / 2), (int) (cy - waveSize / 2), (int) waveSize, (int) waveSize);
+
+            int end = (i + 1) * PARTICLE_COUNT;
+            for (int p = i * PARTICLE_COUNT; p < end; p++) {
+                int diameter = drawSize[p];
+                if (diameter > 0) g2d.drawImage(PARTICLE_SPRITES[color[p]][diameter], drawX[p], drawY[p], null);
+            }
+
+            // Core, shrinking as the shockwave grows
+            float coreSize = size[i] * (1f - t * 0.6f);
+            g2d.drawImage(CORE_SPRITE, (int) (cx - coreSize / 2), (int) (cy - coreSize / 2),
+                    (int) coreSize, (int) coreSize, null);
+        }
+        g2d.dispose();
+    }
+
+    private synchronized void startPending() {
+        for (int j = 0; j < pendingCount; j++) {
+            start(pendingX[j], pendingY[j], pendingSize[j], pendingStart[j]);
+        }
+        pendingCount = 0;
+    }
+
+    private void start(float cx, float cy, float explosionSize, long start) {
+        if (count == x.length) {
+            allocate(count * 2);
+        }
+
+        int i = count++;
+        x[i] = cx;
+        y[i] = cy;
+        size[i] = explosionSize;
+        startNanos[i] = start;
+        progress[i] = 0f;
+
+        int end = (i + 1) * PARTICLE_COUNT;
+        for (int p = i * PARTICLE_COUNT; p < end; p++) {
+            int direction = random.nextInt(DIRECTIONS);
+            dirX[p] = DIRECTION_X[direction];
+            dirY[p] = DIRECTION_Y[direction];
+            reach[p] = explosionSize * (0.5f + random.nextFloat() * 0.7f);
+            particleSize[p] = 4 + random.nextFloat() * (MAX_PARTICLE_SIZE - 4);
+            color[p] = (byte) random.nextInt(COLORS.length);
+        }
+    }
+
+    // Removes explosion i by moving the last explosion and its particles into its slot
+    private void remove(int i) {
+        int last = --count;
+        if (i == last) return;
+
+        x[i] = x[last];
+        y[i] = y[last];
+        size[i] = size[last];
+        startNanos[i] = startNanos[last];
+        progress[i] = progress[last];
+
+        int to = i * PARTICLE_COUNT, from = last * PARTICLE_COUNT;
+        System.arraycopy(dirX, from, dirX, to, PARTICLE_COUNT);
+        System.arraycopy(dirY, from, dirY, to, PARTICLE_COUNT);
+        System.arraycopy(reach, from, reach, to, PARTICLE_COUNT);
+        System.arraycopy(particleSize, from, particleSize, to, PARTICLE_COUNT);
+        System.arraycopy(color, from, color, to, PARTICLE_COUNT);
+        System.arraycopy(drawX, from, drawX, to, PARTICLE_COUNT);
+        System.arraycopy(drawY, from, drawY, to, PARTICLE_COUNT);
+        System.arraycopy(drawSize, from, drawSize, to, PARTICLE_COUNT);
+    }
+
+    private void allocate(int capacity) {
+        int particles = capacity * PARTICLE_COUNT;
+        if (x == null) {
+            x = new float[capacity];
+            y = new float[capacity];
+            size = new float[capacity];
+            startNanos = new long[capacity];
+            progress = new float[capacity];
+            dirX = new float[particles];
+            dirY = new float[particles];
+            reach = new float[particles];
+            particleSize = new float[particles];
+            color = new byte[particles];
+            drawX = new int[particles];
+            drawY = new int[particles];
+            drawSize = new int[particles];
+            return;
+        }
+
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        size = Arrays.copyOf(size, capacity);
+        startNanos = Arrays.copyOf(startNanos, capacity);
+        progress = Arrays.copyOf(progress, capacity);
+        dirX = Arrays.copyOf(dirX, particles);
+        dirY = Arrays.copyOf(dirY, particles);
+        reach = Arrays.copyOf(reach, particles);
+        particleSize = Arrays.copyOf(particleSize, particles);
+        color = Arrays.copyOf(color, particles);
+        drawX = Arrays.copyOf(drawX, particles);
+        drawY = Arrays.copyOf(drawY, particles);
+        drawSize = Arrays.copyOf(drawSize, particles);
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * For a set of target cells, the direction of the next cell on a shortest path to the
+ * nearest target from every cell of the maze, plus the path length and which target that
+ * is. Only recomputed when a target moves to another cell or the maze is regenerated, so
+ * any number of missiles can look up their way in O(1).
+ */
+public class FlowField {
+    private final Maze maze;
+    private final byte[] direction;  // Wall direction towards the target, -1 at the target or if unreachable
+    private final int[] distance;    // Path length in cells, Integer.MAX_VALUE if unreachable
+    private final int[] nearest;     // Id of the nearest target, -1 if unreachable
+    private final int[] queue;
+    private int[] targetCells = new int[0];  // Cell of each target by id, -1 if not a target
+    private int targetCount = 0;
+    private boolean dirty = true;
+    private int generation = -1;
+
+    public FlowField(Maze maze) {
+        this.maze = maze;
+        int cells = maze.getRows() * maze.getCols();
+        direction = new byte[cells];
+        distance = new int[cells];
+        nearest = new int[cells];
+        queue = new int[cells];
+    }
+
+    // Single target convenience; the field then leads to (targetRow, targetCol) only
+    public void update(int targetRow, int targetCol) {
+        setTargetCount(1);
+        setTarget(0, targetRow, targetCol);
+        update();
+    }
+
+    // Targets are identified by 0 <= id < count; ids from a previous, larger count are dropped
+    public void setTargetCount(int count) {
+        if (count > targetCells.length) {
+            int old = targetCells.length;
+            targetCells = Arrays.copyOf(targetCells, Math.max(count, old * 2));
+            Arrays.fill(targetCells, old, targetCells.length, -1);
+        }
+        for (int id = count; id < targetCount; id++) {
+            if (targetCells[id] >= 0) dirty = true;
+            targetCells[id] = -1;
+        }
+        targetCount = count;
+    }
+
+    public void setTarget(int id, int row, int col) {
+        int cell = row * maze.getCols() + col;
+        if (targetCells[id] != cell) {
+            targetCells[id] = cell;
+            dirty = true;
+        }
+    }
+
+    public void removeTarget(int id) {
+        if (targetCells[id] >= 0) {
+            targetCells[id] = -1;
+            dirty = true;
+        }
+    }
+
+    public void update() {
+        if (!dirty && generation == maze.getGeneration()) return;
+
+        dirty = false;
+        generation = maze.getGeneration();
+        Arrays.fill(direction, (byte) -1);
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        Arrays.fill(nearest, -1);
+
+        // BFS outwards from all targets at once; each reached cell points back the way it was
+        // reached, so it leads to whichever target is closest. Lower ids win shared cells.
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        int head = 0, tail = 0;
+        for (int id = 0; id < targetCount; id++) {
+            int target = targetCells[id];
+            if (target < 0 || distance[target] == 0) continue;
+            queue[tail++] = target;
+            distance[target] = 0;
+            nearest[target] = id;
+        }
+
+        while (head < tail) {
+            int current = queue[head++];
+            int r = current / cols;
+            int c = current % cols;
+
+            int walls = maze.getCellWalls(r, c);
+            for (int dir = 0; dir < 4; dir++) {
+                if ((walls & (1 << dir)) != 0) continue;
+                int nr = r + Maze.ROW_STEP[dir];
+                int nc = c + Maze.COL_STEP[dir];
+                if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+
+                int neighbour = nr * cols + nc;
+                if (distance[neighbour] == Integer.MAX_VALUE) {
+                    distance[neighbour] = distance[current] + 1;
+                    direction[neighbour] = (byte) ((dir + 2) % 4);
+                    nearest[neighbour] = nearest[current];
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    public int getDirection(int row, int col) {
+        return direction[row * maze.getCols() + col];
+    }
+
+    public int getDistance(int row, int col) {
+        return distance[row * maze.getCols() + col];
+    }
+
+    public int getNearest(int row, int col) {
+        return nearest[row * maze.getCols() + col];
+    }
+}
@@ -0,0 +1,124 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Active-rendering surface: the game loop thread draws each frame straight into a
+ * {@link BufferStrategy} and shows it, instead of asking Swing to repaint and waiting for
+ * the EDT. Frames go out as soon as the loop has them, at the loop's own pace.
+ * Used by {@link GamePanel} with -Dtanktrouble.activeRendering=true.
+ */
+public class GameCanvas extends Canvas {
+    private static final boolean FRAME_STATS = Boolean.getBoolean("tanktrouble.frameStats");
+    private static final int FRAME_STATS_INTERVAL = 300;
+
+    private final GameRenderer renderer;  // Only used from the thread calling render()
+    private final int buffers;
+    private final boolean vsync;
+    private volatile BufferStrategy strategy;  // Dropped on the EDT when the peer goes away
+    private volatile boolean vsynced;
+
+    // Frame pacing statistics, see FRAME_STATS
+    private long lastShow = 0;
+    private long intervalNanos = 0, maxIntervalNanos = 0;
+    private int frameCount = 0;
+
+    public GameCanvas(GameRenderer renderer, Color background, int buffers, boolean vsync) {
+        this.renderer = renderer;
+        this.buffers = buffers;
+        this.vsync = vsync;
+        setBackground(background);
+        setIgnoreRepaint(true);  // Every pixel comes from render()
+        setFocusable(true);
+    }
+
+    // Draws and shows one frame. Returns false if the canvas can't be drawn on yet.
+    public boolean render(GameSnapshot frame) {
+        int width = getWidth(), height = getHeight();
+        if (!isDisplayable() || width <= 0 || height <= 0) return false;
+        BufferStrategy strategy = this.strategy;
+        if (strategy == null) strategy = createStrategy();
+
+        try {
+            // Every page is redrawn in full, so there is no need for the dirty regions
+            renderer.beginFrame(frame, width, height);
+            do {
+                do {
+                    Graphics g = strategy.getDrawGraphics();
+                    try {
+                        g.setColor(getBackground());
+                        g.fillRect(0, 0, width, height);
+                        renderer.draw(g);
+                    } finally {
+                        g.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+        } catch (IllegalStateException e) {
+            // The peer went away between the check above and drawing
+            this.strategy = null;
+            return false;
+        }
+        Toolkit.getDefaultToolkit().sync();
+
+        if (FRAME_STATS) recordFrameInterval(System.nanoTime());
+        return true;
+    }
+
+    // Whether show() waits for the display's vertical blank
+    public boolean isVSynced() {
+        return vsynced;
+    }
+
+    @Override
+    public void removeNotify() {
+        strategy = null;  // Belongs to the peer that is going away
+        super.removeNotify();
+    }
+
+    private BufferStrategy createStrategy() {
+        vsynced = vsync && createVSyncedStrategy();
+        if (!vsynced) {
+            // Page flipping where the pipeline supports it, otherwise blitting
+            createBufferStrategy(buffers);
+        }
+        strategy = getBufferStrategy();
+        return strategy;
+    }
+
+    // Java2D only offers vsync through an internal capabilities class, reachable when run with
+    // --add-exports java.desktop/sun.java2d.pipe.hw=ALL-UNNAMED. Without it GamePanel paces
+    // frames to the display's refresh rate instead.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private boolean createVSyncedStrategy() {
+        try {
+            Class<?> extended = Class.forName("sun.java2d.pipe.hw.ExtendedBufferCapabilities");
+            Class vSyncType = Class.forName("sun.java2d.pipe.hw.ExtendedBufferCapabilities$VSyncType");
+            BufferCapabilities flip = new BufferCapabilities(new ImageCapabilities(true),
+                    new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED);
+            BufferCapabilities caps = (BufferCapabilities) extended
+                    .getConstructor(BufferCapabilities.class, vSyncType)
+                    .newInstance(flip, Enum.valueOf(vSyncType, "VSYNC_ON"));
+            createBufferStrategy(buffers, caps);
+            return true;
+        } catch (ReflectiveOperationException | AWTException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void recordFrameInterval(long now) {
+        if (lastShow != 0) {
+            long interval = now - lastShow;
+            intervalNanos += interval;
+            maxIntervalNanos = Math.max(maxIntervalNanos, interval);
+            if (++frameCount == FRAME_STATS_INTERVAL) {
+                System.out.printf("show: %.3f ms/frame, worst %.3f ms (%d buffers, vsync %s)%n",
+                        intervalNanos / 1e6 / frameCount, maxIntervalNanos / 1e6, buffers, vsynced ? "on" : "off");
+                intervalNanos = 0;
+                maxIntervalNanos = 0;
+                frameCount = 0;
+            }
+        }
+        lastShow = now;
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game loop running on its own thread.
+ * The simulation always advances in steps of {@link #TICK_NANOS}, using an accumulator
+ * to catch up when a frame took longer, so game speed does not depend on how fast
+ * Swing manages to paint.
+ */
+public class GameLoop implements Runnable {
+    public static final long TICK_NANOS = 1_000_000_000L / GameWorld.TICKS_PER_SECOND;
+    private static final int MAX_TICKS_PER_FRAME = 5; // Drop time instead of spiralling when far behind
+
+    private final Runnable tick;      // Advances the simulation by one tick
+    private final Runnable publish;   // Hands the latest state to the renderer
+    private final Runnable render;    // Requests a frame
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = false;
+    private volatile long frameNanos = TICK_NANOS; // 0 = uncapped
+    private Thread thread;
+
+    public GameLoop(Runnable tick, Runnable publish, Runnable render) {
+        this.tick = tick;
+        this.publish = publish;
+        this.render = render;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    // Runs the task on the simulation thread before the next tick
+    public void post(Runnable task) {
+        tasks.add(task);
+    }
+
+    // Limits how often frames are requested; 0 renders as fast as possible
+    public void setTargetFps(int fps) {
+        frameNanos = fps <= 0 ? 0 : 1_000_000_000L / fps;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long lastFrame = previous;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            if (accumulator > MAX_TICKS_PER_FRAME * TICK_NANOS) {
+                accumulator = MAX_TICKS_PER_FRAME * TICK_NANOS;
+            }
+
+            boolean ticked = false;
+            while (accumulator >= TICK_NANOS) {
+                runTasks();
+                runLogged(tick);
+                accumulator -= TICK_NANOS;
+                ticked = true;
+            }
+
+            if (ticked) {
+                runLogged(publish);
+            }
+
+            long frame = frameNanos;
+            if (frame == 0 || now - lastFrame >= frame) {
+                runLogged(render);
+                lastFrame = now;
+            }
+
+            long untilTick = TICK_NANOS - accumulator;
+            long untilFrame = frame == 0 ? 0 : frame - (System.nanoTime() - lastFrame);
+            long sleep = frame == 0 ? Math.min(untilTick, 1_000_000L) : Math.min(untilTick, untilFrame);
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            runLogged(task);
+        }
+    }
+
+    // A bug in one tick or task is reported and the loop carries on, rather than the thread
+    // dying and leaving the match frozen with nothing said
+    private static void runLogged(Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,34 +1,65 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class GamePanel extends JPanel implements KeyListener, ActionListener {
+public class GamePanel extends JPanel implements KeyListener, GameWorld.Listener {
     // Constants
-    public static final int CELL_SIZE = 45;
-    public static final int ROWS = 12;
-    public static final int COLS = 20;
-    private static final int POWERUP_SPAWN_INTERVAL = 30000;
-
-    // Game State
-    private boolean gameOver = false;
-    private boolean resetScheduled = false;
-    private boolean wallDeathOccurred = false;
-    private boolean needsRoundEndCheck = false;
-    private int playerCount = 2;
-    private long lastPowerUpSpawnTime = System.currentTimeMillis();
+    public static final int CELL_SIZE = GameWorld.CELL_SIZE;
+    public static final int ROWS = GameWorld.ROWS;
+    public static final int COLS = GameWorld.COLS;
+    // -Dtanktrouble.dirtyRegions=false repaints the whole panel every frame, for comparison
+    private static final boolean DIRTY_REGIONS = !"false".equals(System.getProperty("tanktrouble.dirtyRegions"));
+    // -Dtanktrouble.activeRendering=true draws from the game loop into a GameCanvas instead,
+    // with tanktrouble.buffers (2 or 3) pages and tanktrouble.vsync pacing frames to the display
+    private static final boolean ACTIVE_RENDERING = Boolean.getBoolean("tanktrouble.activeRendering");
+    private static final int BUFFERS = Math.max(2, Math.min(3, Integer.getInteger("tanktrouble.buffers", 2)));
+    private static final boolean VSYNC = Boolean.getBoolean("tanktrouble.vsync");
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    // -Dtanktrouble.recordDir=DIR saves every match there as a replay; -Dtanktrouble.replay=FILE
+    // plays one back instead of reading the keyboard: 1-9 set the speed, 0 pauses, the left and
+    // right arrows seek, Home restarts
+    private static final String RECORD_DIR = System.getProperty("tanktrouble.recordDir");
+    private static final String REPLAY_FILE = System.getProperty("tanktrouble.replay");
+    private static final int SEEK_TICKS = 10 * GameWorld.TICKS_PER_SECOND;
+    // -Dtanktrouble.connect=HOST[:PORT] plays on a NetServer with player 1's keys instead of
+    // on the local world; -Dtanktrouble.host=PORT runs one for the menu's settings and joins it
+    private static final String CONNECT = System.getProperty("tanktrouble.connect");
+    private static final Integer HOST_PORT = Integer.getInteger("tanktrouble.host");
+    // -Dtanktrouble.peers=N,HOST:PORT,HOST:PORT[,...] plays a rollback match between the listed
+    // machines, in player order, as player N with player 1's keys
+    private static final String PEERS = System.getProperty("tanktrouble.peers");
+    // -Dtanktrouble.humans=N leaves only the first N players on the keyboard; players without
+    // keys are driven by bots unless -Dtanktrouble.bots=false
+    private static final int HUMANS = Integer.getInteger("tanktrouble.humans", GameWorld.MAX_PLAYERS);
 
     // Objects
-    private final Maze maze = new Maze(ROWS, COLS);
-    private final Tank[] players;
-    private final List<Bullet> bullets = new ArrayList<>();
-    private final List<PowerUp> powerUps = new ArrayList<>();
-    private final List<ExplosionEffect> explosions = new ArrayList<>();
-    private final List<Tank> destroyedThisFrame = new ArrayList<>();
+    private final GameWorld world = new GameWorld();  // Only touched from the game loop thread
+    private final GameRenderer renderer = new GameRenderer(getBackground());
 
     // Controls
-    private final Set<Integer> keys = new HashSet<>();
+    private final InputQueue inputQueue = new InputQueue();  // Key events from the EDT
+    private final InputQueue.Handler keyHandler = this::keyEvent;
+    private final KeyState keys = new KeyState();  // Loop thread only
+    private final boolean[] firePressed = new boolean[GameWorld.MAX_PLAYERS];  // Loop thread only
+    private final int[] inputs = new int[GameWorld.MAX_PLAYERS];  // InputFrames for this tick
+    private final BotPool bots = new BotPool();  // Loop thread only
+    private ReplayWriter recorder;  // Loop thread only, null unless recording
+    private ReplayPlayer replay;    // Loop thread only, null unless playing back
+    private int replaySpeed = 1;    // Ticks played per tick, 0 when paused
+    private NetServer server;       // Loop thread only, null unless hosting
+    private NetClient client;       // Loop thread only, null unless playing over the network
+    private RollbackSession session;  // Loop thread only, null unless playing peer to peer
+    private int followedPlayer = -1;
+    private int mazeRows = ROWS, mazeCols = COLS;  // Last set from the menu, loop thread only
     private final int[][] controls = {
             {KeyEvent.VK_W, KeyEvent.VK_S, KeyEvent.VK_A, KeyEvent.VK_D, KeyEvent.VK_SPACE},
             {KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_ENTER},
@@ -37,8 +68,12 @@ public class GamePanel extends JPanel implements KeyListener, ActionListener {
     };
 
     // Utilities
-    private final javax.swing.Timer timer = new javax.swing.Timer(16, this);
-    private final Random random = new Random();
+    private final GameLoop loop = new GameLoop(this::tick, this::publishSnapshot, this::requestFrame);
+    private volatile GameSnapshot snapshot = GameSnapshot.EMPTY;
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private final Runnable paintFrame = this::paintFrame;
+    private final Rectangle region = new Rectangle();  // EDT only
+    private final GameCanvas canvas;  // Null when Swing paints the panel
     public final ScorePanel scorePanel;
 
 
@@ -48,380 +83,397 @@ public class GamePanel extends JPanel implements KeyListener, ActionListener {
         setFocusable(true);
         addKeyListener(this);
 
-        players = new Tank[4];
-        initializePlayers();
-        maze.generate();
-        spawnPlayers();
-        timer.start();
+        if (ACTIVE_RENDERING) {
+            canvas = new GameCanvas(renderer, getBackground(), BUFFERS, VSYNC);
+            canvas.addKeyListener(this);
+            setLayout(new BorderLayout());
+            add(canvas);
+            if (VSYNC) loop.setTargetFps(displayRefreshRate());
+        } else {
+            canvas = null;
+        }
+
+        renderer.setFollowedPlayers(Math.min(controls.length, HUMANS));
+        renderer.setSeed(world.getSeed());
+        world.setListener(this);
+        publishSnapshot();
+        loop.start();
+        if (RECORD_DIR != null) {
+            // Closing the window or the menu's exit ends the JVM mid-match; the replay still ends
+            Runtime.getRuntime().addShutdownHook(new Thread(this::finishRecording, "recording"));
+        }
 
         addHierarchyListener(e -> {
             if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing()) {
-                requestFocusInWindow();
+                if (canvas != null) {
+                    canvas.requestFocusInWindow();
+                } else {
+                    requestFocusInWindow();
+                }
             }
         });
+    }
 
-        new java.util.Timer().schedule(new TimerTask() {
-            public void run() {
-                SwingUtilities.invokeLater(() -> spawnRandomPowerUps());
-            }
-        }, POWERUP_SPAWN_INTERVAL, POWERUP_SPAWN_INTERVAL);
+    public void setPlayerCount(int count) {
+        loop.post(() -> world.setPlayerCount(count));
     }
 
-    public void addBullet(Bullet bullet) {
-        bullets.add(bullet);
+    // Used from the next resetGame(); the panel keeps its size and scrolls larger mazes
+    public void setMazeSize(int rows, int cols) {
+        loop.post(() -> {
+            world.setMazeSize(rows, cols);
+            mazeRows = rows;
+            mazeCols = cols;
+        });
     }
 
-    private void initializePlayers() {
-        Color[] colors = {Color.GREEN, Color.RED, Color.ORANGE, Color.YELLOW};
-        for (int i = 0; i < 4; i++) {
-            players[i] = new Tank(colors[i]);
-        }
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (canvas == null) renderer.draw(g);
     }
 
-    public void setPlayerCount(int count) {
-        this.playerCount = Math.min(4, Math.max(2, count));
+    // Frames per second of the screen the panel starts on, for vsync pacing
+    private static int displayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless()) return DEFAULT_REFRESH_RATE;
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
     }
 
-    private void spawnPlayers() {
-        for (int i = 0; i < playerCount; i++) {
-            boolean spawned = false;
-            int attempts = 0;
+    // Called by the game loop at the frame rate. In active mode the loop thread draws the
+    // frame itself; otherwise at most one frame waits on the EDT at a time.
+    private void requestFrame() {
+        if (canvas != null) {
+            canvas.render(snapshot);
+        } else if (framePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(paintFrame);
+        }
+    }
 
-            while (!spawned && attempts < 100) {
-                players[i].spawn(maze);
-                spawned = true;
+    // Paints only what changed since the last frame. repaint(Rectangle) would coalesce
+    // every region into one bounding box, so each region is painted on its own.
+    private void paintFrame() {
+        framePending.set(false);
+        if (!isShowing()) return;
 
-                for (int j = 0; j < i; j++) {
-                    if (Math.hypot(players[i].getX() - players[j].getX(), players[i].getY() - players[j].getY()) < 60) {
-                        spawned = false;
-                        break;
-                    }
-                }
-                attempts++;
+        if (!renderer.beginFrame(snapshot, getWidth(), getHeight()) || !DIRTY_REGIONS) {
+            paintImmediately(0, 0, getWidth(), getHeight());
+        } else {
+            DirtyRegions dirty = renderer.getDirtyRegions();
+            for (int i = 0; i < dirty.count(); i++) {
+                paintImmediately(dirty.get(i, region));
             }
         }
+        Toolkit.getDefaultToolkit().sync();
     }
 
-    public enum PowerUpType {
-        BIG_BULLETS, MINI_BULLETS, HOMING_MISSILE, BLOCK
+    // Copies the state the renderer needs; runs on the game loop thread after ticking
+    private void publishSnapshot() {
+        if (client != null) {
+            snapshot = client.getSnapshot();
+        } else if (session != null && session.getWorld() != null) {
+            snapshot = GameSnapshot.capture(session.getWorld());
+        } else {
+            snapshot = GameSnapshot.capture(world);
+        }
     }
 
-    private PowerUpType getRandomPowerUpType() {
-        int roll = random.nextInt(100);
-        if (roll < 40) return PowerUpType.BIG_BULLETS;
-        else if (roll < 75) return PowerUpType.MINI_BULLETS;
-        else if (roll < 95) return PowerUpType.HOMING_MISSILE;
-        else return PowerUpType.BLOCK;
+    // Players with a row in the controls table, up to HUMANS; bots play the rest
+    private int keyboardPlayers() {
+        return Math.min(world.getPlayerCount(), Math.min(controls.length, HUMANS));
     }
 
-    private void applyPowerUp(PowerUpType type, Tank player) {
-        switch (type) {
-            case BIG_BULLETS -> {
-                player.setBulletSize(2.3f);
-            }
-            case MINI_BULLETS -> {
-                player.setBulletSize(0.5f);
-                player.activateMiniBullets();
-            }
-            case HOMING_MISSILE -> player.addHomingMissile();
-            case BLOCK -> player.giveBlock();
+    // One fixed simulation step, called by the game loop
+    private void tick() {
+        inputQueue.drain(keyHandler);
+        if (replay != null) {
+            playReplay();
+        } else if (client != null || session != null) {
+            playNetworkGame();
+        } else {
+            playLocalGame();
         }
+        keys.endTick();
     }
 
-    private void spawnRandomPowerUps() {
-        if (gameOver) return;
-
-        int powerUpCount = 1 + random.nextInt(3);
-        for (int i = 0; i < powerUpCount; i++) {
-            PowerUpType type = getRandomPowerUpType();
-            Point pos = getRandomValidPosition();
-            powerUps.add(new PowerUp(type, pos.x, pos.y));
+    private void playLocalGame() {
+        int keyboard = keyboardPlayers();
+        for (int i = 0; i < keyboard; i++) {
+            inputs[i] = keyboardInput(i);
         }
-    }
-
-    private void resetPlayerPowerUps() {
-        for (int i = 0; i < playerCount; i++) {
-            players[i].setBulletSize(1.0f); // default bullet size
-            players[i].deactivateMiniBullets();
-            players[i].removeHomingMissiles();
-            players[i].removeBlock();
+        // Seats no bot fills stay idle rather than replaying the last match's or replay's inputs
+        Arrays.fill(inputs, keyboard, world.getPlayerCount(), InputFrame.NONE);
+        if (!bots.isEmpty()) bots.decide(world, inputs);
+        if (recorder != null) {
+            try {
+                recorder.tick(inputs);
+            } catch (IOException e) {
+                e.printStackTrace();
+                stopRecording();
+            }
         }
+        world.step(inputs);
     }
 
-    private Point getRandomValidPosition() {
-        int attempts = 0;
-        float spawnRadius = PowerUp.SIZE / 2f;
-
-        while (attempts < 100) {
-            float x = random.nextInt(maze.getCols()) * GamePanel.CELL_SIZE + GamePanel.CELL_SIZE / 2f;
-            float y = random.nextInt(maze.getRows()) * GamePanel.CELL_SIZE + GamePanel.CELL_SIZE / 2f;
+    // Samples one player's keys into an InputFrame, taking the latched fire press
+    private int keyboardInput(int player) {
+        int[] keyMap = controls[player];
+        int input = InputFrame.of(keys.isDown(keyMap[0]), keys.isDown(keyMap[1]),
+                keys.isDown(keyMap[2]), keys.isDown(keyMap[3]), firePressed[player]);
+        firePressed[player] = false;
+        return input;
+    }
 
-            if (maze.isAreaFree(x - spawnRadius, y - spawnRadius, PowerUp.SIZE, PowerUp.SIZE)) {
-                return new Point((int)x, (int)y);
-            }
+    private void startRecording() {
+        stopRecording();
+        if (RECORD_DIR == null) return;
 
-            attempts++;
+        Path path = Paths.get(RECORD_DIR, "match-" + System.currentTimeMillis() + ".ttr");
+        try {
+            recorder = new ReplayWriter(path, world.getSeed(), world.getMaze().getRows(),
+                    world.getMaze().getCols(), world.getPlayerCount());
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-
-        // Fallback
-        return new Point(100, 100);
     }
 
-    @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        maze.draw(g);
-
-        for (int i = 0; i < playerCount; i++) {
-            if (!players[i].isDestroyed()) {
-                players[i].draw(g);
-            }
+    private void stopRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        recorder = null;
+    }
 
-        g.setColor(Color.DARK_GRAY);
-        for (Bullet b : bullets) b.draw(g);
-
-        for (PowerUp pu : powerUps) {
-            pu.draw((Graphics2D) g);
+    // From the shutdown hook: the recorder is the loop's, so it is closed there. The loop is a
+    // daemon and keeps ticking while hooks run.
+    private void finishRecording() {
+        CountDownLatch closed = new CountDownLatch(1);
+        loop.post(() -> {
+            stopRecording();
+            closed.countDown();
+        });
+        try {
+            closed.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+    }
 
-        for (ExplosionEffect exp : explosions) {
-            exp.draw(g);
+    // Replaces the match just set up from the menu with the recorded one
+    private void startReplay() {
+        try {
+            if (replay == null) replay = new ReplayPlayer(Paths.get(REPLAY_FILE));
+            replay.start(world);
+            int players = replay.getPlayerCount();
+            SwingUtilities.invokeLater(() -> scorePanel.setPlayerCount(players));
+        } catch (IOException e) {
+            e.printStackTrace();
+            replay = null;
+            world.resetGame();
         }
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (gameOver) return;
-
-        powerUps.removeIf(pu -> !pu.isActive());
-
-        for (int i = 0; i < playerCount; i++) {
-            if (!players[i].isDestroyed()) {
-                players[i].update(keys, maze, controls[i][0], controls[i][1], controls[i][2], controls[i][3]);
+    private void playReplay() {
+        try {
+            for (int i = 0; i < replaySpeed && replay.step(world); i++) {
+                // Fast-forward plays several recorded ticks per real one
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            replaySpeed = 0;
         }
+    }
 
-        Iterator<Bullet> bulletIter = bullets.iterator();
-        while (bulletIter.hasNext()) {
-            Bullet b = bulletIter.next();
-            b.update(maze);
-
-            if (!b.isActive()) {
-                for (Tank player : players) {
-                    player.bulletDeactivated(b);
-                }
-                bulletIter.remove();
-                continue;
+    // Playback controls, on the loop thread
+    private void replayKey(int keyCode) {
+        try {
+            if (keyCode >= KeyEvent.VK_0 && keyCode <= KeyEvent.VK_9) {
+                replaySpeed = keyCode - KeyEvent.VK_0;
+            } else if (keyCode == KeyEvent.VK_LEFT) {
+                replay.seek(world, Math.max(0, replay.getTick() - SEEK_TICKS));
+            } else if (keyCode == KeyEvent.VK_RIGHT) {
+                replay.seek(world, replay.getTick() + SEEK_TICKS);
+            } else if (keyCode == KeyEvent.VK_HOME) {
+                replay.start(world);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            replaySpeed = 0;
+        }
+    }
 
-            for (int i = 0; i < playerCount; i++) {
-                if (players[i].isDestroyed()) continue;
-
-                if (b.checkCollisionWithTank(players[i].getX(), players[i].getY(), Tank.SIZE/2f)) {
-                    if (players[i].hasBlock()) {
-                        players[i].destroy();
-                    } else {
-                        explosions.add(new ExplosionEffect(players[i].getX(), players[i].getY(), Tank.SIZE));
-                        players[i].destroy();
-                        destroyedThisFrame.add(players[i]);  // Track destruction
-                        needsRoundEndCheck = true;          // Flag for later check
-                    }
-                    bulletIter.remove();
-                    break;
+    // Replaces the local match with one on a server, hosted here if HOST_PORT is set, or
+    // with a rollback match between PEERS
+    private void startNetworkGame() {
+        stopNetworkGame();
+        try {
+            if (PEERS != null) {
+                String[] fields = PEERS.split(",");
+                InetSocketAddress[] peers = new InetSocketAddress[fields.length - 1];
+                for (int i = 0; i < peers.length; i++) {
+                    peers[i] = parseAddress(fields[i + 1].trim());
                 }
+                session = new RollbackSession(Integer.parseInt(fields[0].trim()) - 1, peers, mazeRows, mazeCols);
+                session.setListener(this);
+                return;
             }
-        }
-
-        // Add this AFTER all bullet processing:
-        if (needsRoundEndCheck) {
-            checkEndOfRoundAfterHit();
-            destroyedThisFrame.clear();
-            needsRoundEndCheck = false;
-        }
 
-        explosions.removeIf(exp -> !exp.isActive());
-        for (ExplosionEffect exp : explosions) exp.update();
-
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastPowerUpSpawnTime > 30000) {
-            spawnRandomPowerUps();
-            lastPowerUpSpawnTime = currentTime;
-        }
-
-        for (int i = 0; i < playerCount; i++) {
-            Tank player = players[i];
-            if (player.isDestroyed()) continue;
-
-            Iterator<PowerUp> iter = powerUps.iterator();
-            while (iter.hasNext()) {
-                PowerUp pu = iter.next();
-                if (pu.collidesWith(player.getX(), player.getY())) {
-                    applyPowerUp(pu.getType(), player);
-                    iter.remove();
-                }
+            InetSocketAddress address;
+            if (HOST_PORT != null) {
+                server = new NetServer(HOST_PORT, world.getPlayerCount(), mazeRows, mazeCols);
+                server.start();
+                address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+            } else {
+                address = parseAddress(CONNECT);
             }
+            client = new NetClient(address);
+            client.setListener(this);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            stopNetworkGame();
+            world.resetGame();
         }
-
-        repaint();
     }
 
-    private void checkEndOfRoundAfterHit() {
-        if (wallDeathOccurred) return;
-
-        int aliveCount = 0;
-        Tank lastAlive = null;
+    // HOST[:PORT], on the default port if it has none
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        return colon < 0
+                ? new InetSocketAddress(address, NetServer.DEFAULT_PORT)
+                : new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
 
-        for (int i = 0; i < playerCount; i++) {
-            if (!players[i].isDestroyed()) {
-                aliveCount++;
-                lastAlive = players[i];
-            }
+    private void stopNetworkGame() {
+        try {
+            if (client != null) client.close();
+            if (server != null) server.close();
+            if (session != null) session.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        client = null;
+        server = null;
+        session = null;
+        followedPlayer = -1;
+        renderer.setFollowedPlayers(Math.min(controls.length, HUMANS));
+    }
 
-        // Only act if we're not already resetting
-        if (!resetScheduled) {
-            if (aliveCount == 1) {
-                scheduleRoundReset(lastAlive);
-            }
-            else if (aliveCount == 0) {
-                // Mutual destruction - no points
-                scheduleRoundReset(null);
+    private void playNetworkGame() {
+        int player;
+        try {
+            if (session != null) {
+                session.tick(keyboardInput(0));
+                player = session.getLocalPlayer();
+            } else {
+                client.tick(keyboardInput(0));
+                player = client.getPlayer();
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            stopNetworkGame();
+            return;
+        }
+        if (player != followedPlayer && player >= 0) {
+            followedPlayer = player;
+            renderer.followPlayer(player);
         }
     }
 
-    private void scheduleRoundReset(Tank scoringTank) {
-        if (resetScheduled) return;
-        resetScheduled = true;
-
-        new java.util.Timer().schedule(new TimerTask() {
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    gameOver = true;
-                    repaint();
-
-                    new java.util.Timer().schedule(new TimerTask() {
-                        public void run() {
-                            SwingUtilities.invokeLater(() -> {
-                                // Only increment score if we have a valid tank to score
-                                if (scoringTank != null && !scoringTank.isDestroyed()) {
-                                    scoringTank.incrementScore();
-                                }
-
-                                // Reset game state
-                                bullets.clear();
-                                powerUps.clear();
-                                resetPlayerPowerUps();
-                                maze.generate();
-                                spawnPlayers();
-                                updateScores();
-
-                                // Reset flags
-                                gameOver = false;
-                                resetScheduled = false;
-                                wallDeathOccurred = false;
-
-                                repaint();
-                            });
-                        }
-                    }, 2000);
-                });
-            }
-        }, 4000);
+    @Override
+    public void tankExploded(float x, float y) {
+        renderer.addExplosion(x, y);
     }
 
-    private void updateScores() {
-        int[] scores = new int[4];
-        for (int i = 0; i < playerCount; i++) {
-            scores[i] = players[i].getScore();
-        }
-        scorePanel.setScores(scores);
+    @Override
+    public void shieldAbsorbed(float x, float y) {
+        renderer.addShield(x, y);
+    }
+
+    @Override
+    public void scoresChanged(int[] scores) {
+        SwingUtilities.invokeLater(() -> {
+            // A server's match may have more or fewer players than the menu asked for
+            if (scores.length != scorePanel.getPlayerCount()) scorePanel.setPlayerCount(scores.length);
+            scorePanel.setScores(scores);
+        });
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        keys.add(e.getKeyCode());
-
-        for (int i = 0; i < playerCount; i++) {
-            if (!gameOver && e.getKeyCode() == controls[i][4]) {
-                if (players[i].canFire()) {
-                    Bullet b = players[i].hasHomingMissiles()
-                            ? players[i].fireHomingMissile(maze, players, this)
-                            : players[i].fire(maze, this);
-                    if (b != null) {
-                        bullets.add(b);
-                        players[i].recordShot();
-                    }
-                }
-            }
-        }
+        inputQueue.offer(e.getKeyCode(), true, System.nanoTime());  // Dropped only if the loop has hung
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        inputQueue.offer(e.getKeyCode(), false, System.nanoTime());
     }
 
-    @Override public void keyReleased(KeyEvent e) { keys.remove(e.getKeyCode()); }
     @Override public void keyTyped(KeyEvent e) {}
 
+    // A key event taken from the queue at the start of a tick, on the loop thread
+    private void keyEvent(int keyCode, boolean pressed) {
+        if (!pressed) {
+            keys.release(keyCode);
+            return;
+        }
+        keys.press(keyCode);
+        if (replay != null) {
+            replayKey(keyCode);
+            return;
+        }
+        // Fire is a press, not a held key, so it is latched until the next tick
+        for (int i = 0; i < keyboardPlayers(); i++) {
+            if (keyCode == controls[i][4]) {
+                firePressed[i] = true;
+            }
+        }
+    }
+
     public int[][] getControls() {
         return controls;
     }
 
+    // Checked and applied on the loop thread, which owns the world's player count
     public void updateControls(int[][] newControls) {
-        Set<Integer> allKeys = new HashSet<>();
-        for (int i = 0; i < playerCount; i++) {
-            for (int j = 0; j < 5; j++) {
-                if (!allKeys.add(newControls[i][j])) {
-                    JOptionPane.showMessageDialog(this,
-                            "Duplicate key binding detected! Please use unique keys for each control.",
-                            "Control Conflict", JOptionPane.WARNING_MESSAGE);
-                    return;
+        int[][] copy = new int[newControls.length][];
+        for (int i = 0; i < newControls.length; i++) {
+            copy[i] = newControls[i].clone();
+        }
+        loop.post(() -> {
+            int playerCount = Math.min(world.getPlayerCount(), Math.min(controls.length, copy.length));
+            Set<Integer> allKeys = new HashSet<>();
+            for (int i = 0; i < playerCount; i++) {
+                for (int j = 0; j < 5; j++) {
+                    if (!allKeys.add(copy[i][j])) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                                "Duplicate key binding detected! Please use unique keys for each control.",
+                                "Control Conflict", JOptionPane.WARNING_MESSAGE));
+                        return;
+                    }
                 }
             }
-        }
-
-        for (int i = 0; i < playerCount; i++) {
-            System.arraycopy(newControls[i], 0, controls[i], 0, 5);
-        }
+            for (int i = 0; i < playerCount; i++) {
+                System.arraycopy(copy[i], 0, controls[i], 0, 5);
+            }
+        });
     }
 
     public void resetGame() {
-        bullets.clear();
-        powerUps.clear();
-        resetPlayerPowerUps();
-        maze.generate();
-        for (int i = 0; i < playerCount; i++) {
-            players[i].resetScore();
-        }
-        spawnPlayers();
-        updateScores();
-        gameOver = false;
-    }
-
-    public void tankHitWall(Tank tank) {
-        if (tank.hasBlock()) {
-            tank.destroy();
-        } else {
-            explosions.add(new ExplosionEffect(tank.getX(), tank.getY(), Tank.SIZE));
-            tank.destroy();
-            scheduleWallDeathReset();
-        }
-    }
-
-    public void scheduleWallDeathReset() {
-        if (resetScheduled) return;
-        wallDeathOccurred = true;
-
-        int aliveCount = 0;
-        Tank lastAliveTank = null;
-
-        for (int i = 0; i < playerCount; i++) {
-            if (!players[i].isDestroyed()) {
-                aliveCount++;
-                lastAliveTank = players[i];
+        loop.post(() -> {
+            if (REPLAY_FILE != null) {
+                startReplay();
+            } else if (CONNECT != null || HOST_PORT != null || PEERS != null) {
+                startNetworkGame();
+            } else {
+                world.resetGame();
+                bots.setBots(keyboardPlayers(), BotPool.ENABLED ? world.getPlayerCount() : 0);
+                startRecording();
             }
-        }
-
-        // Only award points if exactly one tank is alive
-        Tank tankToScore = (aliveCount == 1) ? lastAliveTank : null;
-        scheduleRoundReset(tankToScore);
+            renderer.setSeed(world.getSeed());
+        });
     }
 }
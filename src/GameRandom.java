@@ -0,0 +1,66 @@
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seedable SplitMix64 generator for everything random in a match. One match seed is split
+ * into an independent stream per subsystem, so the same seed plays the same match again
+ * and a subsystem drawing more or fewer numbers doesn't shift anyone else's.
+ * Extends Random so the maze generators can keep taking one, without Random's atomic
+ * seed updates; each stream belongs to a single thread.
+ */
+public class GameRandom extends Random {
+    // Stream ids
+    public static final int MAZE = 0;
+    public static final int SPAWNS = 1;
+    public static final int POWER_UPS = 2;
+    public static final int EFFECTS = 3;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    public GameRandom(long matchSeed, int stream) {
+        setSeed(matchSeed, stream);
+    }
+
+    // A fresh match seed for when nobody asked for a particular one
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    // Restarts this generator as the given stream of a match
+    public void setSeed(long matchSeed, int stream) {
+        state = mix(matchSeed ^ mix((stream + 1) * GOLDEN_GAMMA));
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = seed;  // Also called by Random's constructor
+    }
+
+    // Where the stream is up to, to save and restore it
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,435 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Draws a {@link GameWorld} from the snapshots the game loop publishes.
+ * Owns everything that is only visual: tank sprites, explosion and shield effects.
+ * Only the part of the maze in the viewport is drawn, around a camera that follows the
+ * players sharing the screen; anything outside it is skipped.
+ */
+public class GameRenderer {
+    private static final String[] SPRITE_PATHS = {
+            "/images/tank1.png", "/images/tank2.png", "/images/tank3.png", "/images/tank4.png"
+    };
+    private static final int TANK_WIDTH = 25;
+    private static final int TANK_HEIGHT = 15;
+
+    // -Dtanktrouble.mazeCache=false draws the walls line by line every frame, for comparison
+    private static final boolean CACHE_MAZE = !"false".equals(System.getProperty("tanktrouble.mazeCache"));
+    private static final boolean FRAME_STATS = Boolean.getBoolean("tanktrouble.frameStats");
+    private static final int FRAME_STATS_INTERVAL = 300;
+
+    // Large mazes are cached in square tiles, only for the part of the maze in view. Mazes
+    // up to SINGLE_TILE_CELLS across are one tile, a single blit per frame.
+    private static final int TILE_CELLS = 8;
+    private static final int SINGLE_TILE_CELLS = 40;
+    private static final int MAX_CACHED_TILES = 48;
+
+    // How far past its position each kind of entity can draw, for culling and dirty regions
+    private static final int TANK_EXTENT = TANK_WIDTH;
+    private static final int BULLET_EXTENT = 15;
+    private static final int POWERUP_EXTENT = PowerUp.SIZE;
+
+    // Shared by every frame rather than made per item drawn
+    private static final BasicStroke WALL_STROKE = new BasicStroke(4);
+    private static final BasicStroke MISSILE_FIN_STROKE = new BasicStroke(2f);
+    private static final Color POWERUP_TIMER_COLOR = new Color(0, 0, 0, 100);
+
+    private final Color background;
+    private Maze tileMaze;
+    private int tileGeneration = -1;
+    private BufferedImage[] tiles = new BufferedImage[0];  // [tileRow * tileCols + tileCol], null until seen
+    private int tileCells, tileCols;
+    private int cachedTiles = 0;
+    private final SpriteAtlas[] sprites = new SpriteAtlas[SPRITE_PATHS.length];
+
+    // The camera follows the first few players, the ones sharing this screen
+    private volatile int firstFollowed = 0;
+    private volatile int followedPlayers = GameWorld.MAX_PLAYERS;
+    private int cameraX, cameraY;
+    private final Rectangle view = new Rectangle();       // Visible part of the world, drawing thread only
+    private final Rectangle paintArea = new Rectangle();  // Part of the view being painted
+
+    // The frame being painted, set up by beginFrame()
+    private GameSnapshot current = GameSnapshot.EMPTY;
+    private float alpha;
+    private int frameWidth, frameHeight;
+    private Maze frameMaze;
+    private int frameGeneration = -1;
+
+    // Screen areas drawn by the last and the current frame, and the difference to repaint
+    private DirtyRegions drawnLast = new DirtyRegions();
+    private DirtyRegions drawnNow = new DirtyRegions();
+    private final DirtyRegions dirty = new DirtyRegions();
+    private long signatureLast, signatureNow;  // Hash of what is drawn inside those areas
+
+    // Effects are created from the loop thread and handed over to the thread drawing frames
+    private final ExplosionSystem explosions = new ExplosionSystem();
+    private final Queue<ShieldEffect> newShields = new ConcurrentLinkedQueue<>();
+    private final List<ShieldEffect> shields = new ArrayList<>();  // Drawing thread only
+
+    // Frame time statistics, see FRAME_STATS
+    private long frameNanos = 0;
+    private int frameCount = 0;
+
+    public GameRenderer(Color background) {
+        this.background = background;
+        for (int i = 0; i < SPRITE_PATHS.length; i++) {
+            sprites[i] = SpriteAtlas.get(SPRITE_PATHS[i], TANK_WIDTH, TANK_HEIGHT, SpriteAtlas.DEFAULT_BUCKETS);
+        }
+    }
+
+    public void setFollowedPlayers(int count) {
+        firstFollowed = 0;
+        followedPlayers = count;
+    }
+
+    // Keeps the camera on one player, the local one in a network game
+    public void followPlayer(int player) {
+        firstFollowed = player;
+        followedPlayers = player + 1;
+    }
+
+    public void setSeed(long matchSeed) {
+        explosions.setSeed(matchSeed);
+    }
+
+    public void addExplosion(float x, float y) {
+        explosions.add(x, y, Tank.SIZE);
+    }
+
+    public void addShield(float x, float y) {
+        newShields.add(new ShieldEffect(x, y, Tank.SIZE * 2));
+    }
+
+    // Prepares the next frame of a width x height viewport and works out which parts of the
+    // screen differ from the last one. Returns false if the whole viewport needs painting,
+    // otherwise only getDirtyRegions() do, and there may be none.
+    public boolean beginFrame(GameSnapshot frame, int width, int height) {
+        current = frame;
+        long now = System.nanoTime();
+        alpha = frame.alpha(now);
+        updateEffects(now);
+
+        Maze maze = frame.maze;
+        if (maze == null) return false;
+        int oldCameraX = cameraX, oldCameraY = cameraY;
+        updateCamera(frame, maze, alpha, width, height);
+        view.setBounds(cameraX, cameraY, width, height);
+
+        DirtyRegions drawn = drawnLast;
+        drawnLast = drawnNow;
+        drawnNow = drawn;
+        drawnNow.clear();
+        signatureLast = signatureNow;
+        signatureNow = 0;
+        addDrawnBounds(frame);
+
+        // Anything that shifts or changes the maze layer means repainting it all
+        boolean whole = cameraX != oldCameraX || cameraY != oldCameraY
+                || width != frameWidth || height != frameHeight
+                || maze != frameMaze || maze.getGeneration() != frameGeneration;
+        frameWidth = width;
+        frameHeight = height;
+        frameMaze = maze;
+        frameGeneration = maze.getGeneration();
+
+        // What was drawn last frame gets painted over, what is drawn now gets painted in
+        dirty.clear();
+        boolean unchanged = drawnNow.sameAs(drawnLast) && signatureNow == signatureLast;
+        if (!unchanged || explosions.count() > 0 || !shields.isEmpty()) {
+            dirty.addAll(drawnLast);
+            dirty.addAll(drawnNow);
+            dirty.clip(width, height);
+            dirty.merge();
+        }
+        return !whole && dirty.area() < (long) width * height / 2;
+    }
+
+    public DirtyRegions getDirtyRegions() {
+        return dirty;
+    }
+
+    // Screen bounds of everything the current frame draws, plus a hash of whatever else
+    // changes the pixels inside them, such as a tank turning on the spot
+    private void addDrawnBounds(GameSnapshot frame) {
+        for (GameSnapshot.TankState tank : frame.tanks) {
+            addDrawnBounds(GameSnapshot.lerp(tank.prevX, tank.x, alpha), GameSnapshot.lerp(tank.prevY, tank.y, alpha), TANK_EXTENT);
+            sign(Float.floatToIntBits(GameSnapshot.lerp(tank.prevAngle, tank.angle, alpha)));
+        }
+        for (GameSnapshot.BulletState bullet : frame.bullets) {
+            addDrawnBounds(GameSnapshot.lerp(bullet.prevX, bullet.x, alpha), GameSnapshot.lerp(bullet.prevY, bullet.y, alpha), BULLET_EXTENT);
+            sign(Float.floatToIntBits(bullet.dx) ^ Float.floatToIntBits(bullet.dy) * 31 ^ (bullet.homing ? 1 : 0));
+        }
+        for (PowerUp pu : frame.powerUps) {
+            addDrawnBounds(pu.getX(), pu.getY(), POWERUP_EXTENT);
+            sign(pu.getType().ordinal() * 1000 + (int) (360 * pu.remaining(frame.tick)));
+        }
+        for (int i = 0; i < explosions.count(); i++) {
+            addDrawnBounds(explosions.getX(i), explosions.getY(i), (int) Math.ceil(explosions.getExtent(i)));
+        }
+        for (ShieldEffect shield : shields) {
+            addDrawnBounds(shield.getX(), shield.getY(), (int) Math.ceil(shield.getExtent()));
+        }
+    }
+
+    private void addDrawnBounds(float x, float y, int extent) {
+        drawnNow.add((int) x - extent - cameraX, (int) y - extent - cameraY, extent * 2 + 1, extent * 2 + 1);
+        sign(Float.floatToIntBits(x) * 31 + Float.floatToIntBits(y));
+    }
+
+    private void sign(int value) {
+        signatureNow = signatureNow * 31 + value;
+    }
+
+    // Draws the frame set up by beginFrame(), only the parts inside g's clip
+    public void draw(Graphics g) {
+        long start = System.nanoTime();
+        GameSnapshot frame = current;
+        Maze maze = frame.maze;
+        if (maze == null) return;
+
+        // Cull against the clip rather than the whole view, so small repaints stay cheap
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            paintArea.setBounds(view);
+        } else {
+            paintArea.setBounds(clip.x + cameraX, clip.y + cameraY, clip.width, clip.height);
+            Rectangle.intersect(paintArea, view, paintArea);
+        }
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.translate(-cameraX, -cameraY);
+
+        drawMaze(g2, maze);
+        for (GameSnapshot.TankState tank : frame.tanks) {
+            if (inView(GameSnapshot.lerp(tank.prevX, tank.x, alpha), GameSnapshot.lerp(tank.prevY, tank.y, alpha), TANK_EXTENT)) {
+                drawTank(g2, tank, alpha);
+            }
+        }
+        for (GameSnapshot.BulletState bullet : frame.bullets) {
+            if (inView(GameSnapshot.lerp(bullet.prevX, bullet.x, alpha), GameSnapshot.lerp(bullet.prevY, bullet.y, alpha), BULLET_EXTENT)) {
+                drawBullet(g2, bullet, alpha);
+            }
+        }
+        for (PowerUp pu : frame.powerUps) {
+            if (inView(pu.getX(), pu.getY(), POWERUP_EXTENT)) drawPowerUp(g2, pu, frame.tick);
+        }
+        drawEffects(g2);
+        g2.dispose();
+
+        if (FRAME_STATS) recordFrameTime(System.nanoTime() - start);
+    }
+
+    private boolean inView(float x, float y, int extent) {
+        return x + extent >= paintArea.x && x - extent < paintArea.x + paintArea.width
+                && y + extent >= paintArea.y && y - extent < paintArea.y + paintArea.height;
+    }
+
+    // Centres the view on the followed tanks, without showing anything past the maze's edges
+    private void updateCamera(GameSnapshot frame, Maze maze, float alpha, int width, int height) {
+        float sumX = 0, sumY = 0;
+        int followed = 0;
+        int first = firstFollowed, end = followedPlayers;
+        for (GameSnapshot.TankState tank : frame.tanks) {
+            if (tank.player < first || tank.player >= end) continue;
+            sumX += GameSnapshot.lerp(tank.prevX, tank.x, alpha);
+            sumY += GameSnapshot.lerp(tank.prevY, tank.y, alpha);
+            followed++;
+        }
+
+        int maxX = Math.max(0, maze.getCols() * GameWorld.CELL_SIZE - width);
+        int maxY = Math.max(0, maze.getRows() * GameWorld.CELL_SIZE - height);
+        if (followed > 0) {
+            cameraX = Math.round(sumX / followed - width / 2f);
+            cameraY = Math.round(sumY / followed - height / 2f);
+        }
+        cameraX = Math.max(0, Math.min(maxX, cameraX));
+        cameraY = Math.max(0, Math.min(maxY, cameraY));
+    }
+
+    private void drawMaze(Graphics2D g, Maze maze) {
+        int firstRow = Math.max(0, paintArea.y / GameWorld.CELL_SIZE);
+        int lastRow = Math.min(maze.getRows() - 1, (paintArea.y + paintArea.height) / GameWorld.CELL_SIZE);
+        int firstCol = Math.max(0, paintArea.x / GameWorld.CELL_SIZE);
+        int lastCol = Math.min(maze.getCols() - 1, (paintArea.x + paintArea.width) / GameWorld.CELL_SIZE);
+
+        if (!CACHE_MAZE) {
+            drawWalls(g, maze, firstRow, lastRow, firstCol, lastCol);
+            return;
+        }
+
+        // The layout only changes in Maze.generate(), so each tile is rasterised once per round
+        if (maze != tileMaze || maze.getGeneration() != tileGeneration) {
+            tileMaze = maze;
+            tileGeneration = maze.getGeneration();
+            int largest = Math.max(maze.getRows(), maze.getCols());
+            tileCells = largest <= SINGLE_TILE_CELLS ? largest : TILE_CELLS;
+            tileCols = (maze.getCols() + tileCells - 1) / tileCells;
+            int tileRows = (maze.getRows() + tileCells - 1) / tileCells;
+            tiles = new BufferedImage[tileRows * tileCols];
+            cachedTiles = 0;
+        }
+
+        int tileSize = tileCells * GameWorld.CELL_SIZE;
+        if (cachedTiles > MAX_CACHED_TILES) {
+            evictTilesOutside(view.y / tileSize, (view.y + view.height) / tileSize,
+                    view.x / tileSize, (view.x + view.width) / tileSize);
+        }
+
+        // A tile covers the cells it holds, so only tiles under the painted area are blitted
+        int firstTileRow = firstRow / tileCells, lastTileRow = lastRow / tileCells;
+        int firstTileCol = firstCol / tileCells, lastTileCol = lastCol / tileCells;
+
+        for (int tr = firstTileRow; tr <= lastTileRow; tr++) {
+            for (int tc = firstTileCol; tc <= lastTileCol; tc++) {
+                BufferedImage tile = tiles[tr * tileCols + tc];
+                if (tile == null) {
+                    tile = createTile(g, maze, tr, tc);
+                    tiles[tr * tileCols + tc] = tile;
+                    cachedTiles++;
+                }
+                g.drawImage(tile, tc * tileSize, tr * tileSize, null);
+            }
+        }
+    }
+
+    private BufferedImage createTile(Graphics2D g, Maze maze, int tileRow, int tileCol) {
+        int tileSize = tileCells * GameWorld.CELL_SIZE;
+        int x = tileCol * tileSize;
+        int y = tileRow * tileSize;
+        int width = Math.min(tileSize, maze.getCols() * GameWorld.CELL_SIZE - x);
+        int height = Math.min(tileSize, maze.getRows() * GameWorld.CELL_SIZE - y);
+
+        // Opaque, so the per-frame blit is a plain copy rather than a blend
+        BufferedImage tile = g.getDeviceConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE);
+        Graphics2D layer = tile.createGraphics();
+        layer.setColor(background);
+        layer.fillRect(0, 0, width, height);
+        layer.translate(-x, -y);
+
+        // One cell beyond the tile too, for the half of a thick wall line that spills over
+        int firstRow = tileRow * tileCells, firstCol = tileCol * tileCells;
+        drawWalls(layer, maze, Math.max(0, firstRow - 1), Math.min(maze.getRows() - 1, firstRow + tileCells),
+                Math.max(0, firstCol - 1), Math.min(maze.getCols() - 1, firstCol + tileCells));
+        layer.dispose();
+        return tile;
+    }
+
+    private void evictTilesOutside(int firstTileRow, int lastTileRow, int firstTileCol, int lastTileCol) {
+        for (int i = 0; i < tiles.length; i++) {
+            int tr = i / tileCols, tc = i % tileCols;
+            if (tiles[i] != null && (tr < firstTileRow || tr > lastTileRow || tc < firstTileCol || tc > lastTileCol)) {
+                tiles[i] = null;
+                cachedTiles--;
+            }
+        }
+    }
+
+    private void drawWalls(Graphics2D g2, Maze maze, int firstRow, int lastRow, int firstCol, int lastCol) {
+        g2.setColor(Color.BLACK);
+        g2.setStroke(WALL_STROKE);
+
+        int size = GameWorld.CELL_SIZE;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                int x = c * size;
+                int y = r * size;
+                int walls = maze.getCellWalls(r, c);
+                if ((walls & Maze.WALL_TOP) != 0) g2.drawLine(x, y, x + size, y);
+                if ((walls & Maze.WALL_RIGHT) != 0) g2.drawLine(x + size, y, x + size, y + size);
+                if ((walls & Maze.WALL_BOTTOM) != 0) g2.drawLine(x + size, y + size, x, y + size);
+                if ((walls & Maze.WALL_LEFT) != 0) g2.drawLine(x, y + size, x, y);
+            }
+        }
+    }
+
+    private void drawTank(Graphics g, GameSnapshot.TankState tank, float alpha) {
+        SpriteAtlas sprite = sprites[tank.player % sprites.length];
+        if (sprite == null) return;
+
+        float x = GameSnapshot.lerp(tank.prevX, tank.x, alpha);
+        float y = GameSnapshot.lerp(tank.prevY, tank.y, alpha);
+        sprite.draw((Graphics2D) g, x, y, GameSnapshot.lerp(tank.prevAngle, tank.angle, alpha));
+
+        // Sprites are reused beyond the fourth player, so mark the turret with their colour
+        if (!PlayerColors.hasSprite(tank.player)) {
+            g.setColor(PlayerColors.get(tank.player));
+            g.fillOval((int) x - 4, (int) y - 4, 8, 8);
+        }
+    }
+
+    private void drawBullet(Graphics g, GameSnapshot.BulletState b, float alpha) {
+        float x = GameSnapshot.lerp(b.prevX, b.x, alpha);
+        float y = GameSnapshot.lerp(b.prevY, b.y, alpha);
+
+        if (!b.missile) {
+            int drawSize = (int) (Bullet.BASE_SIZE * b.size);
+            g.setColor(Color.DARK_GRAY);
+            g.fillOval((int) x - drawSize / 2, (int) y - drawSize / 2, drawSize, drawSize);
+            return;
+        }
+
+        g.setColor(b.homing ? Color.RED : Color.YELLOW);
+        g.fillOval((int) x - 5, (int) y - 5, 10, 10);
+
+        // A line 10 px ahead along the velocity, drawn in place rather than on a rotated copy of g
+        float speed = (float) Math.hypot(b.dx, b.dy);
+        float tailX = speed > 0 ? b.dx / speed * 10 : 10;
+        float tailY = speed > 0 ? b.dy / speed * 10 : 0;
+        Graphics2D g2d = (Graphics2D) g;
+        Stroke stroke = g2d.getStroke();
+        g2d.setColor(b.homing ? Color.ORANGE : Color.BLACK);
+        g2d.setStroke(MISSILE_FIN_STROKE);
+        g2d.drawLine((int) x, (int) y, Math.round(x + tailX), Math.round(y + tailY));
+        g2d.setStroke(stroke);
+    }
+
+    private void drawPowerUp(Graphics2D g, PowerUp pu, long tick) {
+        if (!pu.isActive(tick)) return;
+
+        switch (pu.getType()) {
+            case BIG_BULLETS -> g.setColor(Color.ORANGE);
+            case MINI_BULLETS -> g.setColor(Color.CYAN);
+            case HOMING_MISSILE -> g.setColor(Color.MAGENTA);
+            case BLOCK -> g.setColor(Color.GREEN);
+        }
+        int x = pu.getX();
+        int y = pu.getY();
+        g.fillOval(x - PowerUp.SIZE / 2, y - PowerUp.SIZE / 2, PowerUp.SIZE, PowerUp.SIZE);
+
+        float progress = pu.remaining(tick);
+        g.setColor(POWERUP_TIMER_COLOR);
+        g.drawArc(x - PowerUp.SIZE/2, y - PowerUp.SIZE/2, PowerUp.SIZE, PowerUp.SIZE, 90, (int)(360 * progress));
+    }
+
+    // Once per frame; the effects animate by wall-clock time
+    private void updateEffects(long now) {
+        ShieldEffect shield;
+        while ((shield = newShields.poll()) != null) shields.add(shield);
+
+        explosions.update(now);
+        shields.removeIf(s -> !s.isActive());
+    }
+
+    private void drawEffects(Graphics2D g) {
+        explosions.draw(g, paintArea);
+        for (ShieldEffect s : shields) {
+            if (inView(s.getX(), s.getY(), (int) Math.ceil(s.getExtent()))) s.draw(g);
+        }
+    }
+
+    private void recordFrameTime(long nanos) {
+        frameNanos += nanos;
+        if (++frameCount == FRAME_STATS_INTERVAL) {
+            System.out.printf("draw: %.3f ms/frame (maze cache %s)%n",
+                    frameNanos / 1e6 / frameCount, CACHE_MAZE ? "on" : "off");
+            frameNanos = 0;
+            frameCount = 0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Immutable copy of the game state after a tick, published by the game loop and drawn
+ * on the EDT. Keeps the previous tick's positions so frames can be interpolated.
+ */
+public final class GameSnapshot {
+    public static final GameSnapshot EMPTY = new GameSnapshot(0, null, new TankState[0], new BulletState[0], new PowerUp[0]);
+
+    final long publishedAt;
+    final long tick;
+    final Maze maze;  // A frozen copy of the world's, shared by snapshots until the layout changes
+    final TankState[] tanks;
+    final BulletState[] bullets;
+    final PowerUp[] powerUps;  // PowerUp is immutable, so instances are shared
+
+    // Normally made by capture(); NetClient builds its own in-between frames
+    GameSnapshot(long tick, Maze maze, TankState[] tanks, BulletState[] bullets, PowerUp[] powerUps) {
+        this.publishedAt = System.nanoTime();
+        this.tick = tick;
+        this.maze = maze;
+        this.tanks = tanks;
+        this.bullets = bullets;
+        this.powerUps = powerUps;
+    }
+
+    public static GameSnapshot capture(GameWorld world) {
+        int alive = 0;
+        for (int i = 0; i < world.getPlayerCount(); i++) {
+            if (!world.getPlayer(i).isDestroyed()) alive++;
+        }
+
+        TankState[] tanks = new TankState[alive];
+        int n = 0;
+        for (int i = 0; i < world.getPlayerCount(); i++) {
+            Tank t = world.getPlayer(i);
+            if (t.isDestroyed()) continue;
+            tanks[n++] = new TankState(i, t.getPrevX(), t.getPrevY(), t.getPrevAngle(), t.getX(), t.getY(), t.getAngle());
+        }
+
+        BulletPool pool = world.getBullets();
+        BulletState[] bullets = new BulletState[pool.count()];
+        for (int i = 0; i < bullets.length; i++) {
+            bullets[i] = new BulletState(pool.getPrevX(i), pool.getPrevY(i), pool.getX(i), pool.getY(i),
+                    pool.getDx(i), pool.getDy(i), pool.getSize(i), pool.isMissile(i), pool.isHoming(i));
+        }
+
+        return new GameSnapshot(world.getTick(), world.getMaze().publishedCopy(), tanks, bullets, world.getPowerUps().toArray(new PowerUp[0]));
+    }
+
+    // How far between the previous and the latest tick a frame drawn now should be
+    public float alpha(long now) {
+        float alpha = (now - publishedAt) / (float) GameLoop.TICK_NANOS;
+        return Math.max(0f, Math.min(1f, alpha));
+    }
+
+    static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    public static final class TankState {
+        final int player;
+        final float prevX, prevY, prevAngle;
+        final float x, y, angle;
+
+        TankState(int player, float prevX, float prevY, float prevAngle, float x, float y, float angle) {
+            this.player = player;
+            this.prevX = prevX;
+            this.prevY = prevY;
+            this.prevAngle = prevAngle;
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+        }
+    }
+
+    public static final class BulletState {
+        final float prevX, prevY;
+        final float x, y;
+        final float dx, dy;
+        final float size;
+        final boolean missile, homing;
+
+        BulletState(float prevX, float prevY, float x, float y, float dx, float dy,
+                    float size, boolean missile, boolean homing) {
+            this.prevX = prevX;
+            this.prevY = prevY;
+            this.x = x;
+            this.y = y;
+            this.dx = dx;
+            this.dy = dy;
+            this.size = size;
+            this.missile = missile;
+            this.homing = homing;
+        }
+    }
+}
@@ -0,0 +1,618 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The game rules without any Swing, AWT or wall-clock dependency.
+ * Time only advances through {@link #step(int[])}, one fixed tick per call, so the same
+ * world can back the Swing view, a headless server or a fast-forward batch run.
+ * The simulation's trigonometry goes through StrictMath rather than Math, whose results
+ * may differ between JVMs and CPUs, so rollback peers and replays on other machines
+ * compute the same bits from the same inputs.
+ */
+public class GameWorld {
+    // Constants
+    public static final int CELL_SIZE = 45;
+    public static final int ROWS = 12;  // Default maze size, see setMazeSize()
+    public static final int COLS = 20;
+    public static final int MIN_MAZE_SIZE = 4;
+    public static final int MAX_MAZE_SIZE = 1000;
+    public static final int MAX_PLAYERS = 64;
+    public static final int TICKS_PER_SECOND = 60;
+    public static final int POWERUP_SPAWN_INTERVAL = 30 * TICKS_PER_SECOND;
+    private static final int ROUND_END_DELAY = 4 * TICKS_PER_SECOND;   // Until the scene freezes
+    private static final int ROUND_RESET_DELAY = 2 * TICKS_PER_SECOND; // Frozen scene until next round
+    private static final int STATE_MAGIC = 0x54545332;  // "TTS2", starts every saveState()
+    private static final int STATE_HEADER_SIZE = 56;
+    private static final int POWERUP_STATE_SIZE = 17;
+    private static final PowerUpType[] POWERUP_TYPES = PowerUpType.values();
+
+    public enum PowerUpType {
+        BIG_BULLETS, MINI_BULLETS, HOMING_MISSILE, BLOCK
+    }
+
+    // Notifications for whoever presents the world; all called from inside step()
+    public interface Listener {
+        void tankExploded(float x, float y);
+        void shieldAbsorbed(float x, float y);
+        void scoresChanged(int[] scores);
+    }
+
+    // Game State
+    private long tick = 0;
+    private boolean gameOver = false;
+    private boolean resetScheduled = false;
+    private boolean wallDeathOccurred = false;
+    private boolean needsRoundEndCheck = false;
+    private int playerCount = 2;
+    private Tank scoringTank;
+
+    // Scheduled events
+    private static final int GAME_OVER = 0;        // The scene freezes
+    private static final int ROUND_RESET = 1;      // The next round starts
+    private static final int SPAWN_POWER_UPS = 2;  // Repeats every POWERUP_SPAWN_INTERVAL
+    private final TickScheduler timers = new TickScheduler();
+    private final TickScheduler.Handler runEvent = this::runEvent;  // Allocated once, step() runs it
+
+    // Objects
+    private Maze maze;                     // Replaced by resetGame() when the size changes
+    private int mazeRows, mazeCols;        // Size for the next match
+    private Tank[] players = new Tank[0];  // Grown by setPlayerCount(), tanks are kept across matches
+    private final BulletPool bullets = new BulletPool();
+    private HomingMissile guidance;
+    private SpatialGrid tankGrid;
+    private final List<PowerUp> powerUps = new ArrayList<>();
+
+    // Utilities
+    private long seed;                     // Of the current match
+    private long nextSeed;                 // For the next resetGame(), if seedRequested
+    private boolean seedRequested = false;
+    private final GameRandom mazeRandom;
+    private final GameRandom spawnRandom;
+    private final GameRandom powerUpRandom;
+    private Listener listener;
+
+    public GameWorld() {
+        this(ROWS, COLS);
+    }
+
+    public GameWorld(int rows, int cols) {
+        this(rows, cols, GameRandom.newSeed());
+    }
+
+    // The same seed, size and inputs to step() always play out the same match
+    public GameWorld(int rows, int cols, long seed) {
+        this.seed = seed;
+        mazeRandom = new GameRandom(seed, GameRandom.MAZE);
+        spawnRandom = new GameRandom(seed, GameRandom.SPAWNS);
+        powerUpRandom = new GameRandom(seed, GameRandom.POWER_UPS);
+        setMazeSize(rows, cols);
+        createMaze(mazeRows, mazeCols);
+        setPlayerCount(playerCount);
+        maze.generate();
+        spawnPlayers();
+        timers.schedule(tick + POWERUP_SPAWN_INTERVAL, SPAWN_POWER_UPS);
+    }
+
+    // Everything sized by the maze is rebuilt together
+    private void createMaze(int rows, int cols) {
+        maze = new Maze(rows, cols, mazeRandom);
+        guidance = new HomingMissile(maze);
+        tankGrid = new SpatialGrid(rows, cols, playerCount);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void step(int[] inputs) {
+        tick++;
+        timers.runDue(tick, runEvent);
+        if (gameOver) return;
+
+        // Indexed loops keep the step free of iterator and lambda garbage
+        for (int i = powerUps.size() - 1; i >= 0; i--) {
+            if (!powerUps.get(i).isActive(tick)) powerUps.remove(i);
+        }
+
+        for (int i = 0; i < playerCount; i++) {
+            if (InputFrame.fire(inputs[i])) {
+                fire(i);
+            }
+        }
+
+        for (int i = 0; i < playerCount; i++) {
+            if (!players[i].isDestroyed()) {
+                players[i].update(maze, inputs[i]);
+            }
+        }
+
+        // Tanks don't move again this tick, so bucket them once for the collision checks
+        tankGrid.clear();
+        for (int i = 0; i < playerCount; i++) {
+            if (!players[i].isDestroyed()) {
+                tankGrid.insert(i, players[i].getX(), players[i].getY());
+            }
+        }
+
+        guidance.track(players, playerCount);
+
+        // Removal swaps the last bullet into slot b, so b only advances when it survives
+        int b = 0;
+        while (b < bullets.count()) {
+            if (bullets.isMissile(b)) {
+                guidance.steer(bullets, b, players);
+            }
+
+            if (!Bullet.update(bullets, b, maze)) {
+                removeBullet(b);
+                continue;
+            }
+
+            int target = findTankHitBy(b);
+            if (target >= 0) {
+                if (hitTank(players[target])) {
+                    needsRoundEndCheck = true;          // Flag for later check
+                }
+                removeBullet(b);
+            } else {
+                b++;
+            }
+        }
+
+        // Add this AFTER all bullet processing:
+        if (needsRoundEndCheck) {
+            checkEndOfRoundAfterHit();
+            needsRoundEndCheck = false;
+        }
+
+        for (int p = powerUps.size() - 1; p >= 0; p--) {
+            PowerUp pu = powerUps.get(p);
+            int taker = findTankOn(pu);
+            if (taker >= 0) {
+                applyPowerUp(pu.getType(), players[taker]);
+                powerUps.remove(p);
+            }
+        }
+    }
+
+    // Hands the bullet's slot back to the tank that fired it, so it may fire again
+    private void removeBullet(int b) {
+        int owner = bullets.getOwner(b);
+        if (owner >= 0 && owner < playerCount) {
+            players[owner].bulletDeactivated(bullets.getSize(b), bullets.isMissile(b));
+        }
+        bullets.remove(b);
+    }
+
+    // Lowest-indexed live tank that bullet b hits, or -1. Only tanks in the cells the
+    // bullet's reach overlaps are tested.
+    private int findTankHitBy(int b) {
+        float x = bullets.getX(b);
+        float y = bullets.getY(b);
+        float reach = Tank.SIZE / 2f + (Bullet.BASE_SIZE * bullets.getSize(b)) / 2f;
+
+        int hit = -1;
+        for (int r = tankGrid.rowOf(y - reach); r <= tankGrid.rowOf(y + reach); r++) {
+            for (int c = tankGrid.colOf(x - reach); c <= tankGrid.colOf(x + reach); c++) {
+                for (int i = tankGrid.first(r, c); i >= 0; i = tankGrid.next(i)) {
+                    if ((hit < 0 || i < hit) && !players[i].isDestroyed()
+                            && Bullet.checkCollisionWithTank(bullets, b, players[i].getX(), players[i].getY(), Tank.SIZE / 2f)) {
+                        hit = i;
+                    }
+                }
+            }
+        }
+        return hit;
+    }
+
+    // Lowest-indexed live tank standing on the power-up, or -1
+    private int findTankOn(PowerUp pu) {
+        float reach = PowerUp.SIZE / 2f;
+
+        int taker = -1;
+        for (int r = tankGrid.rowOf(pu.getY() - reach); r <= tankGrid.rowOf(pu.getY() + reach); r++) {
+            for (int c = tankGrid.colOf(pu.getX() - reach); c <= tankGrid.colOf(pu.getX() + reach); c++) {
+                for (int i = tankGrid.first(r, c); i >= 0; i = tankGrid.next(i)) {
+                    if ((taker < 0 || i < taker) && !players[i].isDestroyed()
+                            && pu.collidesWith(players[i].getX(), players[i].getY())) {
+                        taker = i;
+                    }
+                }
+            }
+        }
+        return taker;
+    }
+
+    private void fire(int player) {
+        Tank tank = players[player];
+        if (tank.isDestroyed() || !tank.canFire(tick)) return;
+
+        boolean fired = tank.hasHomingMissiles()
+                ? tank.fireHomingMissile(maze, this)
+                : tank.fire(maze, this);
+        if (fired) {
+            tank.recordShot(tick);
+        }
+    }
+
+    // Returns true if the tank was destroyed, false if its block absorbed the hit
+    private boolean hitTank(Tank tank) {
+        if (tank.hasBlock()) {
+            tank.destroy();
+            if (listener != null) listener.shieldAbsorbed(tank.getX(), tank.getY());
+            return false;
+        }
+        if (listener != null) listener.tankExploded(tank.getX(), tank.getY());
+        tank.destroy();
+        return true;
+    }
+
+    public void setPlayerCount(int count) {
+        this.playerCount = Math.min(MAX_PLAYERS, Math.max(2, count));
+        if (playerCount > players.length) {
+            int old = players.length;
+            players = Arrays.copyOf(players, playerCount);
+            for (int i = old; i < playerCount; i++) {
+                players[i] = new Tank(i);
+            }
+        }
+    }
+
+    private void spawnPlayers() {
+        for (int i = 0; i < playerCount; i++) {
+            boolean spawned = false;
+            int attempts = 0;
+
+            while (!spawned && attempts < 100) {
+                players[i].spawn(maze, spawnRandom);
+                spawned = true;
+
+                for (int j = 0; j < i; j++) {
+                    if (StrictMath.hypot(players[i].getX() - players[j].getX(), players[i].getY() - players[j].getY()) < 60) {
+                        spawned = false;
+                        break;
+                    }
+                }
+                attempts++;
+            }
+        }
+    }
+
+    private PowerUpType getRandomPowerUpType() {
+        int roll = powerUpRandom.nextInt(100);
+        if (roll < 40) return PowerUpType.BIG_BULLETS;
+        else if (roll < 75) return PowerUpType.MINI_BULLETS;
+        else if (roll < 95) return PowerUpType.HOMING_MISSILE;
+        else return PowerUpType.BLOCK;
+    }
+
+    // Not a switch: javac compiles an enum switch to a lookup class of its own, loaded by the
+    // first pickup of the run, in the middle of a tick
+    private void applyPowerUp(PowerUpType type, Tank player) {
+        if (type == PowerUpType.BIG_BULLETS) {
+            player.setBulletSize(2.3f);
+        } else if (type == PowerUpType.MINI_BULLETS) {
+            player.setBulletSize(0.5f);
+            player.activateMiniBullets();
+        } else if (type == PowerUpType.HOMING_MISSILE) {
+            player.addHomingMissile();
+        } else if (type == PowerUpType.BLOCK) {
+            player.giveBlock();
+        }
+    }
+
+    private void spawnRandomPowerUps() {
+        if (gameOver) return;
+
+        int powerUpCount = 1 + powerUpRandom.nextInt(3);
+        for (int i = 0; i < powerUpCount; i++) {
+            PowerUpType type = getRandomPowerUpType();
+            int[] pos = getRandomValidPosition();
+            powerUps.add(new PowerUp(type, pos[0], pos[1], tick));
+        }
+    }
+
+    private void resetPlayerPowerUps() {
+        for (int i = 0; i < playerCount; i++) {
+            players[i].setBulletSize(1.0f); // default bullet size
+            players[i].deactivateMiniBullets();
+            players[i].removeHomingMissiles();
+            players[i].removeBlock();
+        }
+    }
+
+    private int[] getRandomValidPosition() {
+        int attempts = 0;
+        float spawnRadius = PowerUp.SIZE / 2f;
+
+        while (attempts < 100) {
+            float x = powerUpRandom.nextInt(maze.getCols()) * CELL_SIZE + CELL_SIZE / 2f;
+            float y = powerUpRandom.nextInt(maze.getRows()) * CELL_SIZE + CELL_SIZE / 2f;
+
+            if (maze.isAreaFree(x - spawnRadius, y - spawnRadius, PowerUp.SIZE, PowerUp.SIZE)) {
+                return new int[]{(int) x, (int) y};
+            }
+
+            attempts++;
+        }
+
+        // Fallback
+        return new int[]{100, 100};
+    }
+
+    private void checkEndOfRoundAfterHit() {
+        if (wallDeathOccurred) return;
+
+        int aliveCount = 0;
+        Tank lastAlive = null;
+
+        for (int i = 0; i < playerCount; i++) {
+            if (!players[i].isDestroyed()) {
+                aliveCount++;
+                lastAlive = players[i];
+            }
+        }
+
+        // Only act if we're not already resetting
+        if (!resetScheduled) {
+            if (aliveCount == 1) {
+                scheduleRoundReset(lastAlive);
+            }
+            else if (aliveCount == 0) {
+                // Mutual destruction - no points
+                scheduleRoundReset(null);
+            }
+        }
+    }
+
+    private void scheduleRoundReset(Tank scoringTank) {
+        if (resetScheduled) return;
+        resetScheduled = true;
+
+        this.scoringTank = scoringTank;
+        timers.schedule(tick + ROUND_END_DELAY, GAME_OVER);
+        timers.schedule(tick + ROUND_END_DELAY + ROUND_RESET_DELAY, ROUND_RESET);
+    }
+
+    private void runEvent(int event) {
+        switch (event) {
+            case GAME_OVER -> {
+                gameOver = true;
+                timers.pause(SPAWN_POWER_UPS, tick);  // Not while the scene is frozen
+            }
+            case ROUND_RESET -> resetRound();
+            case SPAWN_POWER_UPS -> {
+                spawnRandomPowerUps();
+                timers.schedule(tick + POWERUP_SPAWN_INTERVAL, SPAWN_POWER_UPS);
+            }
+        }
+    }
+
+    private void resetRound() {
+        // Only increment score if we have a valid tank to score
+        if (scoringTank != null && !scoringTank.isDestroyed()) {
+            scoringTank.incrementScore();
+        }
+
+        // Reset game state
+        bullets.clear();
+        powerUps.clear();
+        resetPlayerPowerUps();
+        maze.generate();
+        spawnPlayers();
+        updateScores();
+
+        // Reset flags
+        gameOver = false;
+        resetScheduled = false;
+        wallDeathOccurred = false;
+        scoringTank = null;
+        timers.resume(SPAWN_POWER_UPS, tick);
+    }
+
+    private void updateScores() {
+        if (listener == null) return;
+
+        int[] scores = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            scores[i] = players[i].getScore();
+        }
+        listener.scoresChanged(scores);
+    }
+
+    // Takes effect from the next resetGame(); rounds within a match keep their size
+    public void setMazeSize(int rows, int cols) {
+        mazeRows = Math.min(MAX_MAZE_SIZE, Math.max(MIN_MAZE_SIZE, rows));
+        mazeCols = Math.min(MAX_MAZE_SIZE, Math.max(MIN_MAZE_SIZE, cols));
+    }
+
+    // Seed for the match started by the next resetGame(); without one it picks a fresh seed
+    public void setSeed(long seed) {
+        nextSeed = seed;
+        seedRequested = true;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Starts a new match. Nothing carries over from the last one but the tick count, so a
+    // match only depends on its seed, size, players and inputs.
+    public void resetGame() {
+        seed = seedRequested ? nextSeed : GameRandom.newSeed();
+        seedRequested = false;
+        mazeRandom.setSeed(seed, GameRandom.MAZE);
+        spawnRandom.setSeed(seed, GameRandom.SPAWNS);
+        powerUpRandom.setSeed(seed, GameRandom.POWER_UPS);
+        bullets.clear();
+        powerUps.clear();
+        resetPlayerPowerUps();
+        if (mazeRows != maze.getRows() || mazeCols != maze.getCols()) {
+            createMaze(mazeRows, mazeCols);
+        }
+        maze.generate();
+        for (int i = 0; i < playerCount; i++) {
+            players[i].resetScore();
+        }
+        spawnPlayers();
+        updateScores();
+        gameOver = false;
+        resetScheduled = false;
+        wallDeathOccurred = false;
+        needsRoundEndCheck = false;
+        scoringTank = null;
+        timers.clear();
+        timers.schedule(tick + POWERUP_SPAWN_INTERVAL, SPAWN_POWER_UPS);
+    }
+
+    public void tankHitWall(Tank tank) {
+        if (hitTank(tank)) {
+            scheduleWallDeathReset();
+        }
+    }
+
+    public void scheduleWallDeathReset() {
+        if (resetScheduled) return;
+        wallDeathOccurred = true;
+
+        int aliveCount = 0;
+        Tank lastAliveTank = null;
+
+        for (int i = 0; i < playerCount; i++) {
+            if (!players[i].isDestroyed()) {
+                aliveCount++;
+                lastAliveTank = players[i];
+            }
+        }
+
+        // Only award points if exactly one tank is alive
+        Tank tankToScore = (aliveCount == 1) ? lastAliveTank : null;
+        scheduleRoundReset(tankToScore);
+    }
+
+    // Writes everything step() depends on, so restoreState() can put the world back exactly
+    // as it is now: round state and timers, random streams, maze, tanks, bullets and power-ups. Match
+    // settings for the next resetGame() aren't included. Needs up to maxStateSize() bytes.
+    public void saveState(ByteBuffer out) {
+        out.putInt(STATE_MAGIC);
+        out.putLong(tick);
+        out.put((byte) ((gameOver ? 1 : 0) | (resetScheduled ? 2 : 0) | (wallDeathOccurred ? 4 : 0)));
+        timers.write(out);
+        out.put((byte) (scoringTank == null ? -1 : scoringTank.getIndex()));
+        out.putLong(seed);
+        out.putLong(mazeRandom.getState()).putLong(spawnRandom.getState()).putLong(powerUpRandom.getState());
+
+        out.putShort((short) maze.getRows()).putShort((short) maze.getCols());
+        maze.writeWalls(out);
+
+        out.put((byte) playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            players[i].writeState(out);
+        }
+        bullets.writeState(out);
+
+        out.putShort((short) powerUps.size());
+        for (PowerUp pu : powerUps) {
+            out.put((byte) pu.getType().ordinal());
+            out.putInt(pu.getX()).putInt(pu.getY());
+            out.putLong(pu.getSpawnTick());
+        }
+    }
+
+    // Puts the world back as it was at saveState(). The listener only hears about scores,
+    // and only if they changed; effects that already played are not repeated.
+    public void restoreState(ByteBuffer in) {
+        if (in.getInt() != STATE_MAGIC) {
+            throw new IllegalArgumentException("Not a saved GameWorld state");
+        }
+        tick = in.getLong();
+        byte flags = in.get();
+        gameOver = (flags & 1) != 0;
+        resetScheduled = (flags & 2) != 0;
+        wallDeathOccurred = (flags & 4) != 0;
+        needsRoundEndCheck = false;
+        timers.read(in);
+        int scorer = in.get();
+        seed = in.getLong();
+        mazeRandom.setState(in.getLong());
+        spawnRandom.setState(in.getLong());
+        powerUpRandom.setState(in.getLong());
+
+        int rows = in.getShort(), cols = in.getShort();
+        if (rows != maze.getRows() || cols != maze.getCols()) {
+            createMaze(rows, cols);
+        }
+        maze.readWalls(in);
+
+        setPlayerCount(in.get());
+        boolean scoresChanged = false;
+        for (int i = 0; i < playerCount; i++) {
+            int score = players[i].getScore();
+            players[i].readState(in);
+            scoresChanged |= players[i].getScore() != score;
+        }
+        scoringTank = scorer < 0 ? null : players[scorer];
+        bullets.readState(in);
+
+        // Power-ups are immutable, so unchanged ones are kept rather than recreated
+        int count = in.getShort();
+        for (int p = 0; p < count; p++) {
+            PowerUpType type = POWERUP_TYPES[in.get()];
+            int x = in.getInt(), y = in.getInt();
+            long spawnTick = in.getLong();
+            PowerUp old = p < powerUps.size() ? powerUps.get(p) : null;
+            if (old != null && old.getType() == type && old.getX() == x && old.getY() == y
+                    && old.getSpawnTick() == spawnTick) continue;
+
+            PowerUp pu = new PowerUp(type, x, y, spawnTick);
+            if (old != null) {
+                powerUps.set(p, pu);
+            } else {
+                powerUps.add(pu);
+            }
+        }
+        while (powerUps.size() > count) {
+            powerUps.remove(powerUps.size() - 1);
+        }
+
+        if (scoresChanged) updateScores();
+    }
+
+    // Upper bound on the bytes saveState() writes right now
+    public int maxStateSize() {
+        return STATE_HEADER_SIZE + timers.stateSize() + maze.getRows() * maze.getCols()
+                + playerCount * Tank.MAX_STATE_SIZE
+                + 4 + bullets.count() * BulletPool.STATE_SIZE
+                + 2 + powerUps.size() * POWERUP_STATE_SIZE;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public Tank getPlayer(int index) {
+        return players[index];
+    }
+
+    public Maze getMaze() {
+        return maze;
+    }
+
+    public BulletPool getBullets() {
+        return bullets;
+    }
+
+    public List<PowerUp> getPowerUps() {
+        return powerUps;
+    }
+}
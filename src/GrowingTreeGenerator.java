@@ -0,0 +1,67 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Growing tree: keeps a list of active cells and extends from either the newest one
+ * (backtracker-like corridors) or a random one (Prim-like branching), mixed by
+ * newestBias.
+ */
+public class GrowingTreeGenerator implements MazeGenerator {
+    private final float newestBias;
+    private int[] active = new int[0];
+    private boolean[] visited = new boolean[0];
+
+    public GrowingTreeGenerator() {
+        this(0.5f);
+    }
+
+    public GrowingTreeGenerator(float newestBias) {
+        this.newestBias = newestBias;
+    }
+
+    @Override
+    public void generate(Maze maze, Random rand) {
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        int cells = rows * cols;
+        if (visited.length != cells) {
+            active = new int[cells];
+            visited = new boolean[cells];
+        } else {
+            Arrays.fill(visited, false);
+        }
+
+        int count = 0;
+        int start = rand.nextInt(cells);
+        active[count++] = start;
+        visited[start] = true;
+
+        while (count > 0) {
+            int index = rand.nextFloat() < newestBias ? count - 1 : rand.nextInt(count);
+            int cell = active[index];
+            int r = cell / cols;
+            int c = cell % cols;
+
+            boolean carved = false;
+            byte[] order = DIRECTION_ORDERS[rand.nextInt(DIRECTION_ORDERS.length)];
+            for (int dir : order) {
+                int nr = r + Maze.ROW_STEP[dir];
+                int nc = c + Maze.COL_STEP[dir];
+                if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+
+                int next = nr * cols + nc;
+                if (visited[next]) continue;
+
+                maze.openWall(r, c, dir);
+                visited[next] = true;
+                active[count++] = next;
+                carved = true;
+                break;
+            }
+
+            if (!carved) {
+                active[index] = active[--count];  // No unvisited neighbours left
+            }
+        }
+    }
+}
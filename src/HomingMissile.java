@@ -1,125 +1,72 @@
-import java.awt.*;
-import java.util.List;
-import java.util.Queue;
-import java.util.LinkedList;
-
-public class HomingMissile extends Bullet {
-    private static final float SPEED = 3.5f;
+/**
+ * Guidance for missiles in a {@link BulletPool}. Homing missiles follow a flow field
+ * towards the nearest tank, steering at the centre of the next cell along the corridor
+ * instead of straight at the target through the walls. One field serves every missile
+ * and every tank, so steering cost doesn't grow with the number of tanks.
+ */
+public class HomingMissile {
+    static final float SPEED = 3.5f;
+    static final int LIFETIME = 2000;
     private static final int HOMING_DELAY = 300; // 5 seconds at 60fps
     private static final float TURN_RATE = 0.05f;
+    private static final float CORRIDOR_TURN_RATE = 0.25f;  // Corners need a tighter turn than open chases
 
-    private final List<Tank> players;
-    private Tank target;
-    private boolean isHoming = false;
-    private int framesAlive = 0;
-
-    public HomingMissile(float x, float y, float angle, Maze maze,
-                         List<Tank> players, float sizeMultiplier) {
-        super(x, y, angle, maze, SPEED, 2000, sizeMultiplier, null);
-        this.players = players;
+    private final FlowField field;  // Leads to the nearest live tank, targets are tank indices
 
-        // Initialize movement direction
-        this.dx = (float) Math.cos(angle) * SPEED;
-        this.dy = (float) Math.sin(angle) * SPEED;
+    public HomingMissile(Maze maze) {
+        field = new FlowField(maze);
     }
 
-    @Override
-    public void update(Maze maze) {
-        framesAlive++;
-
-        if (framesAlive > HOMING_DELAY) {
-            isHoming = true;
-            target = findNearestTarget();
-        }
-
-        if (isHoming && target != null && !target.isDestroyed()) {
-            float currentAngle = (float) Math.atan2(dy, dx);
-            float desiredAngle = (float) Math.atan2(target.getY() - y, target.getX() - x);
-            float angleDiff = (float) Math.atan2(Math.sin(desiredAngle - currentAngle),
-                    Math.cos(desiredAngle - currentAngle));
-            float newAngle = currentAngle + angleDiff * TURN_RATE;
-
-            dx = (float) Math.cos(newAngle) * SPEED;
-            dy = (float) Math.sin(newAngle) * SPEED;
-        }
-
-        super.update(maze);
-    }
-
-    private int getPathDistance(Maze maze, int startRow, int startCol, int targetRow, int targetCol) {
-        int rows = maze.getRows();
-        int cols = maze.getCols();
-        boolean[][] visited = new boolean[rows][cols];
-        Queue<int[]> queue = new LinkedList<>();
-        queue.offer(new int[]{startRow, startCol, 0});
-        visited[startRow][startCol] = true;
-
-        int[][] directions = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
-
-        while (!queue.isEmpty()) {
-            int[] current = queue.poll();
-            int r = current[0];
-            int c = current[1];
-            int dist = current[2];
-
-            if (r == targetRow && c == targetCol) {
-                return dist;
-            }
-
-            for (int i = 0; i < 4; i++) {
-                int nr = r + directions[i][0];
-                int nc = c + directions[i][1];
-
-                if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && !visited[nr][nc]) {
-                    if (!maze.getWalls()[r][c][i]) {
-                        visited[nr][nc] = true;
-                        queue.offer(new int[]{nr, nc, dist + 1});
-                    }
-                }
+    // Moves the field's targets to where the tanks are now; call once per tick before steering.
+    // The field itself is only rebuilt when a missile needs it and a tank changed cell.
+    public void track(Tank[] players, int playerCount) {
+        field.setTargetCount(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            Tank t = players[i];
+            if (t.isDestroyed()) {
+                field.removeTarget(i);
+            } else {
+                field.setTarget(i, (int) (t.getY() / GameWorld.CELL_SIZE), (int) (t.getX() / GameWorld.CELL_SIZE));
             }
         }
-
-        return Integer.MAX_VALUE;
     }
 
-    private Tank findNearestTarget() {
-        Tank nearest = null;
-        int shortestPath = Integer.MAX_VALUE;
-
-        for (Tank t : players) {
-            if (t.isDestroyed()) continue;
-
-            int startRow = (int) (y / GamePanel.CELL_SIZE);
-            int startCol = (int) (x / GamePanel.CELL_SIZE);
-            int targetRow = (int) (t.getY() / GamePanel.CELL_SIZE);
-            int targetCol = (int) (t.getX() / GamePanel.CELL_SIZE);
-
-            int pathLen = getPathDistance(maze, startRow, startCol, targetRow, targetCol);
-
-            if (pathLen < shortestPath) {
-                shortestPath = pathLen;
-                nearest = t;
-            }
+    // Turns missile i towards the nearest tank once its homing delay has passed
+    public void steer(BulletPool bullets, int i, Tank[] players) {
+        if (bullets.lifetime[i] + 1 > HOMING_DELAY) {
+            bullets.homing[i] = true;
         }
-
-        return nearest;
-    }
-
-    @Override
-    public void draw(Graphics g) {
-        if (isHoming) {
-            g.setColor(Color.RED);
-        } else {
-            g.setColor(Color.YELLOW);
+        if (!bullets.homing[i]) return;
+
+        float x = bullets.x[i];
+        float y = bullets.y[i];
+        int row = (int) (y / GameWorld.CELL_SIZE);
+        int col = (int) (x / GameWorld.CELL_SIZE);
+        field.update();
+        int nearest = field.getNearest(row, col);
+        if (nearest < 0) return;
+        Tank target = players[nearest];
+
+        // Aim at the next cell's centre, or at the tank itself once in the same cell
+        float aimX = target.getX();
+        float aimY = target.getY();
+        float turnRate = TURN_RATE;
+        int dir = field.getDirection(row, col);
+        if (dir >= 0) {
+            aimX = (col + Maze.COL_STEP[dir] + 0.5f) * GameWorld.CELL_SIZE;
+            aimY = (row + Maze.ROW_STEP[dir] + 0.5f) * GameWorld.CELL_SIZE;
+            turnRate = CORRIDOR_TURN_RATE;
         }
-        g.fillOval((int) x - 5, (int) y - 5, 10, 10);
 
-        float currentAngle = (float) Math.atan2(dy, dx);
-        Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setColor(isHoming ? Color.ORANGE : Color.BLACK);
-        g2d.setStroke(new BasicStroke(2f));
-        g2d.rotate(currentAngle, x, y);
-        g2d.drawLine((int) x, (int) y, (int) x + 10, (int) y);
-        g2d.dispose();
+        float dx = bullets.dx[i];
+        float dy = bullets.dy[i];
+        float currentAngle = (float) StrictMath.atan2(dy, dx);
+        float desiredAngle = (float) StrictMath.atan2(aimY - y, aimX - x);
+        float angleDiff = (float) StrictMath.atan2(StrictMath.sin(desiredAngle - currentAngle),
+                StrictMath.cos(desiredAngle - currentAngle));
+        float newAngle = currentAngle + angleDiff * turnRate;
+
+        bullets.dx[i] = (float) StrictMath.cos(newAngle) * SPEED;
+        bullets.dy[i] = (float) StrictMath.sin(newAngle) * SPEED;
     }
 }
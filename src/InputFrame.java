@@ -0,0 +1,28 @@
+/**
+ * One player's input for one tick, packed into an int: the bits below, as taken per player
+ * by {@link GameWorld#step(int[])}, {@link Tank#update(Maze, int)}, and as passed around by
+ * replays, the network code and anything else that drives a tank. Fire is a press, set
+ * only on the tick it happened; the other bits are held keys.
+ */
+public final class InputFrame {
+    public static final int NONE = 0;
+    public static final int UP = 1;
+    public static final int DOWN = 1 << 1;
+    public static final int LEFT = 1 << 2;
+    public static final int RIGHT = 1 << 3;
+    public static final int FIRE = 1 << 4;
+    public static final int MOVEMENT = UP | DOWN | LEFT | RIGHT;
+
+    private InputFrame() {
+    }
+
+    public static int of(boolean up, boolean down, boolean left, boolean right, boolean fire) {
+        return (up ? UP : 0) | (down ? DOWN : 0) | (left ? LEFT : 0) | (right ? RIGHT : 0) | (fire ? FIRE : 0);
+    }
+
+    public static boolean up(int frame) { return (frame & UP) != 0; }
+    public static boolean down(int frame) { return (frame & DOWN) != 0; }
+    public static boolean left(int frame) { return (frame & LEFT) != 0; }
+    public static boolean right(int frame) { return (frame & RIGHT) != 0; }
+    public static boolean fire(int frame) { return (frame & FIRE) != 0; }
+}
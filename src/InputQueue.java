@@ -0,0 +1,74 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer single-consumer ring of key events, each stamped with
+ * System.nanoTime() when the listener saw it. The EDT produces, the game loop drains it
+ * at the start of each tick, so presses and releases reach the simulation in the order
+ * they happened, all of them, however short, and nothing is handled on the EDT itself.
+ *
+ * -Dtanktrouble.inputStats=true prints percentiles of the time from a key event to the
+ * tick that took it in.
+ */
+final class InputQueue {
+    interface Handler {
+        void key(int keyCode, boolean pressed);
+    }
+
+    private static final boolean INPUT_STATS = Boolean.getBoolean("tanktrouble.inputStats");
+    private static final int INPUT_STATS_EVENTS = 200;
+    private static final int CAPACITY = 1024;  // Power of two; minutes of typing between ticks
+    private static final int MASK = CAPACITY - 1;
+
+    private final int[] keyCodes = new int[CAPACITY];
+    private final boolean[] pressed = new boolean[CAPACITY];
+    private final long[] stamps = new long[CAPACITY];
+    private final AtomicLong head = new AtomicLong();  // Next event to take, consumer writes
+    private final AtomicLong tail = new AtomicLong();  // Next free slot, producer writes
+
+    // Input latency statistics, consumer only, see INPUT_STATS
+    private final long[] latencies = new long[INPUT_STATS_EVENTS];
+    private int latencyCount = 0;
+
+    // Producer only. False if the ring is full and the event was dropped.
+    boolean offer(int keyCode, boolean down, long when) {
+        long t = tail.getPlain();
+        if (t - head.getAcquire() == CAPACITY) return false;
+        int i = (int) t & MASK;
+        keyCodes[i] = keyCode;
+        pressed[i] = down;
+        stamps[i] = when;
+        tail.setRelease(t + 1);  // Publishes the slot
+        return true;
+    }
+
+    // Consumer only. Hands every queued event to the handler, oldest first.
+    void drain(Handler handler) {
+        long h = head.getPlain();
+        long t = tail.getAcquire();
+        if (h == t) return;
+
+        long now = INPUT_STATS ? System.nanoTime() : 0;
+        for (; h < t; h++) {
+            int i = (int) h & MASK;
+            if (INPUT_STATS) recordLatency(now - stamps[i]);
+            handler.key(keyCodes[i], pressed[i]);
+        }
+        head.setRelease(t);  // Frees the slots
+    }
+
+    private void recordLatency(long nanos) {
+        latencies[latencyCount++] = nanos;
+        if (latencyCount == INPUT_STATS_EVENTS) {
+            Arrays.sort(latencies);
+            System.out.printf("input to tick: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(0.50) / 1e6, percentile(0.90) / 1e6, percentile(0.99) / 1e6,
+                    latencies[INPUT_STATS_EVENTS - 1] / 1e6);
+            latencyCount = 0;
+        }
+    }
+
+    private long percentile(double p) {
+        return latencies[(int) Math.ceil(p * INPUT_STATS_EVENTS) - 1];
+    }
+}
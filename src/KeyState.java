@@ -0,0 +1,42 @@
+/**
+ * Which keys are down, one bit per key code, so tracking them doesn't box every key event
+ * and a lookup is a shift and a mask. Owned by the game loop thread, which feeds it the
+ * events from InputQueue in order. A key pressed since the last endTick() counts as down
+ * even if it is already up again, so a tap shorter than a tick still moves the tank for
+ * one. Key codes beyond MAX_KEY_CODE, such as extended ones, are ignored.
+ */
+final class KeyState {
+    static final int MAX_KEY_CODE = 0xFFFF;
+
+    private final long[] down = new long[(MAX_KEY_CODE >> 6) + 1];
+    private final long[] tapped = new long[down.length];
+    private final int[] tappedWords = new int[down.length];  // Words of tapped to clear
+    private int tappedCount = 0;
+
+    void press(int keyCode) {
+        if (keyCode < 0 || keyCode > MAX_KEY_CODE) return;
+        int word = keyCode >> 6;
+        down[word] |= 1L << keyCode;
+        if (tapped[word] == 0) tappedWords[tappedCount++] = word;
+        tapped[word] |= 1L << keyCode;
+    }
+
+    void release(int keyCode) {
+        if (keyCode < 0 || keyCode > MAX_KEY_CODE) return;
+        down[keyCode >> 6] &= ~(1L << keyCode);
+    }
+
+    // Held now, or pressed since the last endTick()
+    boolean isDown(int keyCode) {
+        if (keyCode < 0 || keyCode > MAX_KEY_CODE) return false;
+        return ((down[keyCode >> 6] | tapped[keyCode >> 6]) & 1L << keyCode) != 0;
+    }
+
+    // Forgets the taps once this tick's input has been sampled
+    void endTick() {
+        for (int i = 0; i < tappedCount; i++) {
+            tapped[tappedWords[i]] = 0;
+        }
+        tappedCount = 0;
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Random;
+
+/**
+ * Randomised Kruskal: opens interior walls in random order whenever they join two
+ * separate regions, tracked with a union-find. Produces many short dead ends.
+ */
+public class KruskalGenerator implements MazeGenerator {
+    private int[] edges = new int[0];   // cell * 2 + 0 for the right wall, + 1 for the bottom wall
+    private int[] parent = new int[0];
+    private int[] rank = new int[0];
+
+    @Override
+    public void generate(Maze maze, Random rand) {
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        int cells = rows * cols;
+        if (parent.length != cells) {
+            edges = new int[cells * 2];
+            parent = new int[cells];
+            rank = new int[cells];
+        }
+
+        int edgeCount = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            parent[cell] = cell;
+            rank[cell] = 0;
+            if (cell % cols < cols - 1) edges[edgeCount++] = cell * 2;
+            if (cell / cols < rows - 1) edges[edgeCount++] = cell * 2 + 1;
+        }
+
+        // Fisher-Yates shuffle
+        for (int i = edgeCount - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int tmp = edges[i];
+            edges[i] = edges[j];
+            edges[j] = tmp;
+        }
+
+        int joined = 0;
+        for (int i = 0; i < edgeCount && joined < cells - 1; i++) {
+            int cell = edges[i] >> 1;
+            boolean bottom = (edges[i] & 1) != 0;
+            int other = bottom ? cell + cols : cell + 1;
+
+            int a = find(cell);
+            int b = find(other);
+            if (a == b) continue;
+
+            if (rank[a] < rank[b]) {
+                parent[a] = b;
+            } else if (rank[a] > rank[b]) {
+                parent[b] = a;
+            } else {
+                parent[b] = a;
+                rank[a]++;
+            }
+            maze.openWall(cell / cols, cell % cols, bottom ? 2 : 1);
+            joined++;
+        }
+    }
+
+    private int find(int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];  // Path halving
+            cell = parent[cell];
+        }
+        return cell;
+    }
+}
@@ -1,114 +1,250 @@
-import java.awt.*;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.List;
 
 public class Maze {
+    // Mazes up to this many cells get an all-pairs distance table (2 bytes per pair)
+    private static final int MAX_DISTANCE_TABLE_CELLS = 2048;
+    private static final short UNREACHABLE = Short.MAX_VALUE;
+    static final int[] ROW_STEP = {-1, 0, 1, 0};  // Indexed by wall direction
+    static final int[] COL_STEP = {0, 1, 0, -1};
+
+    // Wall bits of a cell, bit n is wall direction n
+    public static final int WALL_TOP = 1;
+    public static final int WALL_RIGHT = 1 << 1;
+    public static final int WALL_BOTTOM = 1 << 2;
+    public static final int WALL_LEFT = 1 << 3;
+    private static final byte ALL_WALLS = WALL_TOP | WALL_RIGHT | WALL_BOTTOM | WALL_LEFT;
+
     private final int rows, cols;
-    private final boolean[][] visited;
-    private final boolean[][][] walls;
-    private final Random rand = new Random();
+    private byte[] walls;  // One nibble of wall bits per cell, row-major
+    private byte[] restoredWalls;  // Scratch for readWalls()
+    private boolean[][][] wallsView;
+    private int wallsViewGeneration = -1;
+    private final Random rand;
+    private MazeGenerator generator = new BacktrackerGenerator();
+    private int generation = 0;  // Bumped on every generate() so views can cache the layout
+    private final boolean distanceTable;  // Whether lookups may build distances, see hasDistanceTable()
+    private short[] distances;  // [from * cells + to] in cells, allocated by the first lookup
+    private int distancesGeneration = -1;
+    private int[] bfsQueue;
+    private Maze published;  // Last copy made by publishedCopy()
 
     public Maze(int rows, int cols) {
+        this(rows, cols, new Random());
+    }
+
+    // Layouts are drawn from rand, so a seeded generator gives the same sequence of mazes
+    public Maze(int rows, int cols, Random rand) {
         this.rows = rows;
         this.cols = cols;
-        visited = new boolean[rows][cols];
-        walls = new boolean[rows][cols][4]; // top, right, bottom, left
+        this.rand = rand;
+        walls = new byte[rows * cols];
+        distanceTable = rows * cols <= MAX_DISTANCE_TABLE_CELLS;
+    }
+
+    // Walls-only copy for publishedCopy(): no generator, random stream or distance table
+    private Maze(Maze source) {
+        rows = source.rows;
+        cols = source.cols;
+        rand = null;
+        walls = source.walls.clone();
+        generation = source.generation;
+        distanceTable = false;
+    }
+
+    // A copy of the current layout for other threads, such as the renderer's snapshots. It is
+    // never changed after this returns, so it can be read while this maze is regenerated or
+    // restored, and is only made again once the layout differs, so readers can keep caching
+    // by identity and generation. Owning thread only.
+    Maze publishedCopy() {
+        if (published == null || published.generation != generation) {
+            published = new Maze(this);
+        }
+        return published;
     }
 
     public void generate() {
-        for (boolean[] row : visited) Arrays.fill(row, false);
-        for (boolean[][] cell : walls)
-            for (boolean[] wall : cell)
-                Arrays.fill(wall, true);
-        generateMaze(0, 0);
-        addLoops(40);
-    }
-
-    private void generateMaze(int r, int c) {
-        visited[r][c] = true;
-        Integer[] dirs = {0, 1, 2, 3};
-        Collections.shuffle(Arrays.asList(dirs));
-        for (int dir : dirs) {
-            int nr = r, nc = c;
-            switch (dir) {
-                case 0 -> nr--;
-                case 1 -> nc++;
-                case 2 -> nr++;
-                case 3 -> nc--;
-            }
-            if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && !visited[nr][nc]) {
-                walls[r][c][dir] = false;
-                walls[nr][nc][(dir + 2) % 4] = false;
-                generateMaze(nr, nc);
+        Arrays.fill(walls, ALL_WALLS);
+        generator.generate(this, rand);
+        addLoops(rows * cols / 6);  // 40 on the standard 12x20 maze
+        generation++;
+    }
+
+    // One BFS per cell, done on the first lookup after the layout changed so rounds that
+    // never ask don't pay for it; after that lookups during play are O(1). The table, up to
+    // 8 MB, only exists in mazes that have been asked.
+    private void computeDistances() {
+        if (distancesGeneration == generation) return;
+        distancesGeneration = generation;
+        int cells = rows * cols;
+        if (distances == null) {
+            distances = new short[cells * cells];
+            bfsQueue = new int[cells];
+        }
+        Arrays.fill(distances, UNREACHABLE);
+
+        for (int from = 0; from < cells; from++) {
+            int base = from * cells;
+            int head = 0, tail = 0;
+            bfsQueue[tail++] = from;
+            distances[base + from] = 0;
+
+            while (head < tail) {
+                int current = bfsQueue[head++];
+                int r = current / cols;
+                int c = current % cols;
+                short next = (short) (distances[base + current] + 1);
+
+                int cellWalls = walls[current];
+                for (int dir = 0; dir < 4; dir++) {
+                    if ((cellWalls & (1 << dir)) != 0) continue;
+                    int nr = r + ROW_STEP[dir];
+                    int nc = c + COL_STEP[dir];
+                    if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+
+                    int neighbour = nr * cols + nc;
+                    if (distances[base + neighbour] == UNREACHABLE) {
+                        distances[base + neighbour] = next;
+                        bfsQueue[tail++] = neighbour;
+                    }
+                }
             }
         }
     }
 
+    public void setGenerator(MazeGenerator generator) {
+        this.generator = generator;
+    }
+
+    // Whether getDistance() and getNextDirection() work here: not in large mazes, nor in
+    // published copies
+    public boolean hasDistanceTable() {
+        return distanceTable;
+    }
+
+    // Path length in cells, or Integer.MAX_VALUE if unreachable. Needs hasDistanceTable().
+    public int getDistance(int fromRow, int fromCol, int toRow, int toCol) {
+        computeDistances();
+        int cells = rows * cols;
+        short d = distances[(fromRow * cols + fromCol) * cells + toRow * cols + toCol];
+        return d == UNREACHABLE ? Integer.MAX_VALUE : d;
+    }
+
+    // Wall direction (0 top, 1 right, 2 bottom, 3 left) of the first step on a shortest path,
+    // or -1 if already there or unreachable. Needs hasDistanceTable().
+    public int getNextDirection(int fromRow, int fromCol, int toRow, int toCol) {
+        computeDistances();
+        int cells = rows * cols;
+        int to = toRow * cols + toCol;
+        short d = distances[(fromRow * cols + fromCol) * cells + to];
+        if (d == 0 || d == UNREACHABLE) return -1;
+
+        for (int dir = 0; dir < 4; dir++) {
+            if (hasWall(fromRow, fromCol, dir)) continue;
+            int nr = fromRow + ROW_STEP[dir];
+            int nc = fromCol + COL_STEP[dir];
+            if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) continue;
+            if (distances[(nr * cols + nc) * cells + to] == d - 1) return dir;
+        }
+        return -1;
+    }
+
+    // Knocks down random extra walls so there is more than one route between places
     private void addLoops(int count) {
         for (int i = 0; i < count; i++) {
             int r = rand.nextInt(rows), c = rand.nextInt(cols);
-            List<Integer> dirs = new ArrayList<>(Arrays.asList(0, 1, 2, 3));
-            Collections.shuffle(dirs);
+            byte[] dirs = MazeGenerator.DIRECTION_ORDERS[rand.nextInt(MazeGenerator.DIRECTION_ORDERS.length)];
             for (int dir : dirs) {
-                int nr = r, nc = c;
-                switch (dir) {
-                    case 0 -> nr--;
-                    case 1 -> nc++;
-                    case 2 -> nr++;
-                    case 3 -> nc--;
-                }
-                if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && walls[r][c][dir]) {
-                    walls[r][c][dir] = false;
-                    walls[nr][nc][(dir + 2) % 4] = false;
+                int nr = r + ROW_STEP[dir];
+                int nc = c + COL_STEP[dir];
+                if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && hasWall(r, c, dir)) {
+                    openWall(r, c, dir);
                     break;
                 }
             }
         }
     }
 
+    // Removes the wall on side dir of the cell, and the matching wall of its neighbour
+    public void openWall(int r, int c, int dir) {
+        walls[r * cols + c] &= (byte) ~(1 << dir);
+        walls[(r + ROW_STEP[dir]) * cols + c + COL_STEP[dir]] &= (byte) ~(1 << ((dir + 2) % 4));
+    }
+
+    public boolean hasWall(int r, int c, int dir) {
+        return (walls[r * cols + c] & (1 << dir)) != 0;
+    }
+
+    // All four wall bits of a cell, see WALL_TOP etc.
+    public int getCellWalls(int r, int c) {
+        return walls[r * cols + c];
+    }
+
+    // The layout as rows * cols bytes, for GameWorld.saveState()
+    void writeWalls(ByteBuffer out) {
+        out.put(walls);
+    }
+
+    // Counterpart of writeWalls() for a maze of the same size. Only counts as a new layout,
+    // for anyone caching it by generation, if the walls actually differ. The old array is
+    // kept as scratch and overwritten by the next restore, which is why other threads only
+    // ever get publishedCopy() and never this maze.
+    void readWalls(ByteBuffer in) {
+        if (restoredWalls == null) {
+            restoredWalls = new byte[walls.length];
+        }
+        in.get(restoredWalls);
+        if (Arrays.mismatch(restoredWalls, walls) >= 0) {
+            byte[] old = walls;
+            walls = restoredWalls;
+            restoredWalls = old;
+            generation++;
+        }
+    }
+
     public boolean isAreaFree(float x, float y, int width, int height) {
-        int left = (int)(x) / GamePanel.CELL_SIZE;
-        int right = (int)(x + width - 1) / GamePanel.CELL_SIZE;
-        int top = (int)(y) / GamePanel.CELL_SIZE;
-        int bottom = (int)(y + height - 1) / GamePanel.CELL_SIZE;
+        int left = (int)(x) / GameWorld.CELL_SIZE;
+        int right = (int)(x + width - 1) / GameWorld.CELL_SIZE;
+        int top = (int)(y) / GameWorld.CELL_SIZE;
+        int bottom = (int)(y + height - 1) / GameWorld.CELL_SIZE;
 
         for (int r = top; r <= bottom; r++) {
             for (int c = left; c <= right; c++) {
                 if (r < 0 || r >= rows || c < 0 || c >= cols) return false;
 
-                float offsetX = x - c * GamePanel.CELL_SIZE;
-                float offsetY = y - r * GamePanel.CELL_SIZE;
+                float offsetX = x - c * GameWorld.CELL_SIZE;
+                float offsetY = y - r * GameWorld.CELL_SIZE;
 
-                if (walls[r][c][0] && offsetY < 4) return false; // top wall
-                if (walls[r][c][1] && offsetX > GamePanel.CELL_SIZE - 4) return false; // right wall
-                if (walls[r][c][2] && offsetY > GamePanel.CELL_SIZE - 4) return false; // bottom wall
-                if (walls[r][c][3] && offsetX < 4) return false; // left wall
+                int cellWalls = walls[r * cols + c];
+                if ((cellWalls & WALL_TOP) != 0 && offsetY < 4) return false; // top wall
+                if ((cellWalls & WALL_RIGHT) != 0 && offsetX > GameWorld.CELL_SIZE - 4) return false; // right wall
+                if ((cellWalls & WALL_BOTTOM) != 0 && offsetY > GameWorld.CELL_SIZE - 4) return false; // bottom wall
+                if ((cellWalls & WALL_LEFT) != 0 && offsetX < 4) return false; // left wall
             }
         }
 
         return true;
     }
 
-    public void draw(Graphics g) {
-        g.setColor(Color.BLACK);
-        Graphics2D g2 = (Graphics2D) g;
-        g2.setStroke(new BasicStroke(4));
-
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                int x = c * GamePanel.CELL_SIZE;
-                int y = r * GamePanel.CELL_SIZE;
-                if (walls[r][c][0]) g2.drawLine(x, y, x + GamePanel.CELL_SIZE, y);
-                if (walls[r][c][1]) g2.drawLine(x + GamePanel.CELL_SIZE, y, x + GamePanel.CELL_SIZE, y + GamePanel.CELL_SIZE);
-                if (walls[r][c][2]) g2.drawLine(x + GamePanel.CELL_SIZE, y + GamePanel.CELL_SIZE, x, y + GamePanel.CELL_SIZE);
-                if (walls[r][c][3]) g2.drawLine(x, y + GamePanel.CELL_SIZE, x, y);
-            }
+    // Unpacked [row][col][direction] copy of the walls for older callers; use hasWall() in hot paths
+    public boolean[][][] getWalls() {
+        if (wallsView == null) {
+            wallsView = new boolean[rows][cols][4];
+        }
+        if (wallsViewGeneration != generation) {
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++)
+                    for (int dir = 0; dir < 4; dir++)
+                        wallsView[r][c][dir] = hasWall(r, c, dir);
+            wallsViewGeneration = generation;
         }
+        return wallsView;
     }
 
-    public boolean[][][] getWalls() {
-        return walls;
+    public int getGeneration() {
+        return generation;
     }
+
     public int getRows() {
         return rows;
     }
@@ -0,0 +1,27 @@
+import java.util.Random;
+
+/**
+ * Carves a perfect maze (every cell reachable, no loops) into a maze whose walls are all
+ * closed. Implementations keep their scratch buffers between calls, so regenerating a maze
+ * of the same size does not allocate.
+ */
+public interface MazeGenerator {
+    // All 24 orders of the four wall directions, to shuffle without boxing
+    byte[][] DIRECTION_ORDERS = directionOrders();
+
+    void generate(Maze maze, Random rand);
+
+    private static byte[][] directionOrders() {
+        byte[][] orders = new byte[24][];
+        int n = 0;
+        for (byte a = 0; a < 4; a++)
+            for (byte b = 0; b < 4; b++)
+                for (byte c = 0; c < 4; c++) {
+                    byte d = (byte) (6 - a - b - c);
+                    if (a != b && a != c && b != c && d >= 0 && d < 4 && d != a && d != b && d != c) {
+                        orders[n++] = new byte[]{a, b, c, d};
+                    }
+                }
+        return orders;
+    }
+}
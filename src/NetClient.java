@@ -0,0 +1,271 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+/**
+ * Plays on a {@link NetServer}: sends this player's input every tick and rebuilds the
+ * server's world from the states it sends back. Those arrive unevenly, or not at all, so
+ * they are drawn INTERPOLATION_TICKS behind the newest one, blending tank positions between
+ * the two received states around that time; a lost or late packet then shows as nothing
+ * worse than a slightly longer blend. Everything here runs on the caller's game loop thread.
+ */
+public class NetClient implements Closeable {
+    private static final int HISTORY = 64;              // Received states kept, as delta bases and frames
+    private static final int INTERPOLATION_TICKS = 3;   // 50 ms of slack for jitter and a lost packet
+    private static final int JOIN_RETRY_TICKS = GameWorld.TICKS_PER_SECOND / 2;
+    private static final double MAX_DRIFT = 0.25;       // Ticks the playback clock speeds up or slows by
+
+    private final DatagramChannel channel;
+    private final SocketAddress server;
+    private final NetLink link;
+    private final GameWorld mirror = new GameWorld();  // The newest state received
+    private final ByteBuffer in = ByteBuffer.allocate(NetServer.MAX_PACKET);
+    private final ByteBuffer out = ByteBuffer.allocate(32);
+    private GameWorld.Listener listener;
+
+    private final ByteBuffer[] states = new ByteBuffer[HISTORY];
+    private final GameSnapshot[] frames = new GameSnapshot[HISTORY];
+    private final long[] ticks = new long[HISTORY];  // Of states and frames, -1 when empty
+    private long newestTick = -1;
+
+    private final byte[] sentInputs = new byte[NetServer.INPUT_REDUNDANCY];  // Newest first
+    private int sequence = 0;
+    private int player = -1;
+    private int announcedPlayers = 0;  // Players the listener last heard scores for
+    private boolean rejected = false;
+    private long ticksWaiting = 0;
+    private final boolean[] alive = new boolean[GameWorld.MAX_PLAYERS];
+    private final boolean[] blocked = new boolean[GameWorld.MAX_PLAYERS];  // Holding a block
+
+    // What was last drawn, the starting point of the next frame's interpolation
+    private double playbackTick = -1;
+    private GameSnapshot snapshot = GameSnapshot.EMPTY;
+    private final GameSnapshot.TankState[] shown = new GameSnapshot.TankState[GameWorld.MAX_PLAYERS];
+    private final GameSnapshot.TankState[] other = new GameSnapshot.TankState[GameWorld.MAX_PLAYERS];
+    private long bytesReceived = 0;
+
+    public NetClient(SocketAddress server) throws IOException {
+        this.server = server;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(server);
+        link = new NetLink(channel);
+        Arrays.fill(ticks, -1);
+    }
+
+    // Hears explosions and scores of the server's match
+    public void setListener(GameWorld.Listener listener) {
+        this.listener = listener;
+        mirror.setListener(listener);
+    }
+
+    // This client's player, or -1 until the server has taken it in
+    public int getPlayer() {
+        return player;
+    }
+
+    // True if the server had no room or speaks another protocol
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    public long getNewestTick() {
+        return newestTick;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    // The frame to draw after this tick
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // One client tick: takes what arrived, sends this tick's input and moves playback on
+    public void tick(int input) throws IOException {
+        link.flush();
+        try {
+            receive();
+        } catch (PortUnreachableException e) {
+            // No server there yet; keep asking
+        }
+
+        if (player < 0) {
+            if (!rejected && ticksWaiting++ % JOIN_RETRY_TICKS == 0) {
+                out.clear();
+                out.put(NetServer.JOIN).putInt(NetServer.PROTOCOL);
+                link.send(out.flip(), server);
+            }
+        } else {
+            sendInput(input);
+        }
+        advance();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (player >= 0) {
+                out.clear();
+                channel.send(out.put(NetServer.LEAVE).flip(), server);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void sendInput(int input) throws IOException {
+        System.arraycopy(sentInputs, 0, sentInputs, 1, sentInputs.length - 1);
+        sentInputs[0] = (byte) input;
+        out.clear();
+        out.put(NetServer.INPUT).putInt(++sequence).putLong(newestTick)
+                .put((byte) sentInputs.length).put(sentInputs);
+        link.send(out.flip(), server);
+    }
+
+    private void receive() throws IOException {
+        while (channel.receive(in.clear()) != null) {
+            in.flip();
+            bytesReceived += in.remaining();
+            try {
+                switch (in.get()) {
+                    case NetServer.WELCOME -> {
+                        player = in.get();  // The player count comes with every state
+                    }
+                    case NetServer.REJECT -> rejected = player < 0;
+                    case NetServer.STATE -> readState();
+                    default -> {
+                        // Unknown packet
+                    }
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                // Truncated; the next state makes up for it
+            }
+        }
+    }
+
+    private void readState() {
+        long tick = in.getLong();
+        long baseTick = in.getLong();
+        if (tick <= newestTick) return;  // Overtaken by a newer one
+        ByteBuffer base = null;
+        if (baseTick >= 0) {
+            if (tick - baseTick >= HISTORY || ticks[slot(baseTick)] != baseTick) return;
+            base = states[slot(baseTick)];
+        }
+
+        int slot = slot(tick);
+        int length = base == null ? in.remaining() : Varints.get(in.duplicate());
+        if (states[slot] == null || states[slot].capacity() < length) {
+            states[slot] = ByteBuffer.allocate(length);
+        }
+        ByteBuffer state = states[slot].clear();
+        ticks[slot] = -1;
+        if (base == null) {
+            state.put(in);
+        } else {
+            StateDelta.decode(base, in, state);
+        }
+        state.flip();
+
+        for (int i = 0; i < mirror.getPlayerCount(); i++) {
+            alive[i] = !mirror.getPlayer(i).isDestroyed();
+            blocked[i] = mirror.getPlayer(i).hasBlock();
+        }
+        int players = newestTick < 0 ? 0 : mirror.getPlayerCount();  // Nothing to compare the first with
+        Maze maze = mirror.getMaze();
+        int generation = maze.getGeneration();
+        mirror.restoreState(state.duplicate());
+        ticks[slot] = tick;
+        newestTick = tick;
+        frames[slot] = GameSnapshot.capture(mirror);
+        announce(players, mirror.getMaze() == maze && maze.getGeneration() == generation);
+    }
+
+    // Effects aren't part of the state, so they are worked out from what changed. A block
+    // that went within a round took a hit; a new round takes them all away quietly.
+    private void announce(int oldPlayers, boolean sameRound) {
+        if (listener == null) return;
+        int players = mirror.getPlayerCount();
+        for (int i = 0; i < Math.min(players, oldPlayers); i++) {
+            Tank tank = mirror.getPlayer(i);
+            if (sameRound && blocked[i] && !tank.hasBlock()) listener.shieldAbsorbed(tank.getX(), tank.getY());
+            if (alive[i] && tank.isDestroyed()) listener.tankExploded(tank.getX(), tank.getY());
+        }
+        if (players != announcedPlayers) {
+            int[] scores = new int[players];
+            for (int i = 0; i < players; i++) {
+                scores[i] = mirror.getPlayer(i).getScore();
+            }
+            announcedPlayers = players;
+            listener.scoresChanged(scores);
+        }
+    }
+
+    // Moves the playback clock on a tick, nudged towards INTERPOLATION_TICKS behind the
+    // newest state, and builds the frame for where it is now
+    private void advance() {
+        if (newestTick < 0) return;
+        double target = newestTick - INTERPOLATION_TICKS;
+        if (playbackTick < 0 || Math.abs(target - playbackTick) > HISTORY / 4) {
+            playbackTick = target;  // Starting, or too far off to catch up smoothly
+        } else {
+            playbackTick += 1 + Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, (target - playbackTick) * 0.1));
+        }
+        playbackTick = Math.min(playbackTick, newestTick);
+
+        // The received states either side of the playback time
+        long floor = (long) Math.floor(playbackTick);
+        long aTick = floor, bTick = floor + 1;
+        while (aTick > newestTick - HISTORY && frameAt(aTick) == null) aTick--;
+        while (bTick <= newestTick && frameAt(bTick) == null) bTick++;
+        GameSnapshot a = frameAt(aTick), b = frameAt(bTick);
+        if (a == null && b == null) return;
+
+        float t = a == null ? 1f : b == null ? 0f : (float) ((playbackTick - aTick) / (bTick - aTick));
+        GameSnapshot near = t < 0.5f ? a : b;
+        GameSnapshot far = near == a ? b : a;
+        if (far == null) far = near;
+
+        Arrays.fill(other, null);
+        for (GameSnapshot.TankState tank : far.tanks) {
+            other[tank.player] = tank;
+        }
+        GameSnapshot.TankState[] tanks = new GameSnapshot.TankState[near.tanks.length];
+        for (int i = 0; i < tanks.length; i++) {
+            GameSnapshot.TankState tank = near.tanks[i];
+            GameSnapshot.TankState start = near == a ? tank : other[tank.player];
+            GameSnapshot.TankState end = near == a ? other[tank.player] : tank;
+            float x = tank.x, y = tank.y, angle = tank.angle;
+            if (start != null && end != null) {
+                x = GameSnapshot.lerp(start.x, end.x, t);
+                y = GameSnapshot.lerp(start.y, end.y, t);
+                angle = GameSnapshot.lerp(start.angle, end.angle, t);
+            }
+            GameSnapshot.TankState last = shown[tank.player];
+            tanks[i] = last == null
+                    ? new GameSnapshot.TankState(tank.player, x, y, angle, x, y, angle)
+                    : new GameSnapshot.TankState(tank.player, last.x, last.y, last.angle, x, y, angle);
+        }
+
+        Arrays.fill(shown, null);
+        for (GameSnapshot.TankState tank : tanks) {
+            shown[tank.player] = tank;
+        }
+        snapshot = new GameSnapshot(near.tick, near.maze, tanks, near.bullets, near.powerUps);
+    }
+
+    private GameSnapshot frameAt(long tick) {
+        return tick >= 0 && ticks[slot(tick)] == tick ? frames[slot(tick)] : null;
+    }
+
+    private static int slot(long tick) {
+        return (int) (tick % HISTORY);
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Sends datagrams for {@link NetServer} and {@link NetClient}, optionally through a
+ * simulated bad network so network play can be tried on localhost: each packet is dropped
+ * with some probability, or held back for a latency plus random jitter, which also
+ * reorders them. Off unless -Dtanktrouble.netLatency=MS, tanktrouble.netJitter=MS or
+ * tanktrouble.netLoss=PERCENT is set; applied on sending, so both ends together give the
+ * round trip.
+ */
+public class NetLink {
+    private static final int LATENCY_MS = Integer.getInteger("tanktrouble.netLatency", 0);
+    private static final int JITTER_MS = Integer.getInteger("tanktrouble.netJitter", 0);
+    private static final double LOSS = Double.parseDouble(System.getProperty("tanktrouble.netLoss", "0")) / 100;
+
+    private final DatagramChannel channel;
+    private final long latencyNanos, jitterNanos;
+    private final double loss;
+    private final boolean simulated;
+    private final Random random = new Random();
+    private final PriorityQueue<Delayed> delayed = new PriorityQueue<>();
+    private long sequence = 0;  // Keeps packets due at the same time in order
+
+    public NetLink(DatagramChannel channel) {
+        this(channel, LATENCY_MS, JITTER_MS, LOSS);
+    }
+
+    public NetLink(DatagramChannel channel, int latencyMs, int jitterMs, double loss) {
+        this.channel = channel;
+        this.latencyNanos = Math.max(0, latencyMs) * 1_000_000L;
+        this.jitterNanos = Math.max(0, jitterMs) * 1_000_000L;
+        this.loss = loss;
+        this.simulated = latencyNanos > 0 || jitterNanos > 0 || loss > 0;
+    }
+
+    // Sends the packet between position and limit, now or once it is due. A full socket
+    // buffer drops it, as the network would.
+    public void send(ByteBuffer packet, SocketAddress to) throws IOException {
+        if (!simulated) {
+            channel.send(packet, to);
+            return;
+        }
+        if (random.nextDouble() < loss) return;
+
+        long due = System.nanoTime() + latencyNanos;
+        if (jitterNanos > 0) due += (long) (random.nextDouble() * jitterNanos);
+        byte[] copy = new byte[packet.remaining()];
+        packet.get(copy);
+        delayed.add(new Delayed(due, sequence++, copy, to));
+        flush();
+    }
+
+    // Sends the held back packets that are due; call at least once a tick
+    public void flush() throws IOException {
+        long now = System.nanoTime();
+        while (!delayed.isEmpty() && delayed.peek().due - now <= 0) {
+            Delayed packet = delayed.poll();
+            channel.send(ByteBuffer.wrap(packet.data), packet.to);
+        }
+    }
+
+    private static final class Delayed implements Comparable<Delayed> {
+        final long due;
+        final long sequence;
+        final byte[] data;
+        final SocketAddress to;
+
+        Delayed(long due, long sequence, byte[] data, SocketAddress to) {
+            this.due = due;
+            this.sequence = sequence;
+            this.data = data;
+            this.to = to;
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            int order = Long.compare(due - other.due, 0);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+}
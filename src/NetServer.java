@@ -0,0 +1,284 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Authoritative server for network play. It runs the only real {@link GameWorld} on its
+ * own {@link GameLoop}, takes every client's inputs over UDP and after each tick sends each
+ * client the new state, delta-encoded against the last state that client confirmed. A lost
+ * packet then costs nothing but a larger delta next tick; nothing is ever resent. All
+ * networking happens on the loop thread through a non-blocking DatagramChannel.
+ *
+ * Packets, big-endian, first byte the type:
+ * <pre>
+ *   client: JOIN int protocol
+ *           INPUT int sequence, long ackTick, byte n, n input bytes, newest first
+ *           LEAVE
+ *   server: WELCOME byte player, byte players
+ *           REJECT
+ *           STATE long tick, long baseTick, then a StateDelta against the state of baseTick,
+ *                 or if baseTick is -1 the whole GameWorld.saveState()
+ * </pre>
+ * Each INPUT repeats the client's last few inputs, so a fire press survives a lost packet.
+ * Seats nobody has joined are played by a {@link BotPool}, which also makes a server of
+ * nothing but bots a load test.
+ *
+ * Dedicated server: java NetServer [port] [players] [rows] [cols]
+ */
+public class NetServer implements Closeable {
+    public static final int DEFAULT_PORT = 27960;
+    static final int PROTOCOL = 2;
+    static final int MAX_PACKET = 65507;  // Largest UDP payload
+    static final int INPUT_REDUNDANCY = 8;
+
+    // Client to server
+    static final byte JOIN = 1;
+    static final byte INPUT = 2;
+    static final byte LEAVE = 3;
+
+    // Server to client
+    static final byte WELCOME = 1;
+    static final byte REJECT = 2;
+    static final byte STATE = 3;
+
+    private static final int STATE_HEADER = 17;  // Type, tick and base tick of a STATE
+    private static final int BULLET_ROOM = 256 * BulletPool.STATE_SIZE;  // Kept free for bullets and power-ups
+    private static final int HISTORY = 64;        // Ticks of states kept as delta bases, ~1 s
+    private static final int TIMEOUT_TICKS = 5 * GameWorld.TICKS_PER_SECOND;
+
+    private final GameWorld world = new GameWorld();  // Loop thread only
+    private final DatagramChannel channel;
+    private final NetLink link;
+    private final GameLoop loop = new GameLoop(this::tick, () -> {}, () -> {});
+    private final Map<SocketAddress, Remote> remotes = new HashMap<>();
+    private final Remote[] slots = new Remote[GameWorld.MAX_PLAYERS];  // By player, null when free
+    private final int[] inputs = new int[GameWorld.MAX_PLAYERS];
+    private final BotPool bots = new BotPool();  // Plays the free seats
+    private final ByteBuffer[] history = new ByteBuffer[HISTORY];
+    private final long[] historyTicks = new long[HISTORY];
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_PACKET);
+    private final ByteBuffer out = ByteBuffer.allocate(MAX_PACKET);
+    private ByteBuffer delta = ByteBuffer.allocate(0);
+    private volatile long bytesSent = 0;
+
+    // The maze and tanks of a whole state, plus room for a screenful of bullets, have to fit
+    // in one packet; a state that outgrows it anyway isn't sent, see sendState()
+    public NetServer(int port, int players, int rows, int cols) throws IOException {
+        world.setPlayerCount(players);
+        world.setMazeSize(rows, cols);
+        world.resetGame();
+        if (STATE_HEADER + world.maxStateSize() + BULLET_ROOM > MAX_PACKET) {
+            throw new IllegalArgumentException("Match too large to send: " + players + " players on " + rows + "x" + cols);
+        }
+        bots.setBots(0, BotPool.ENABLED ? players : 0);
+        Arrays.fill(historyTicks, -1);
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+        link = new NetLink(channel);
+    }
+
+    public void start() {
+        loop.start();
+    }
+
+    // The bound port, for a server started on port 0
+    public int getPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void close() throws IOException {
+        loop.stop();
+        bots.close();
+        channel.close();
+    }
+
+    private void tick() {
+        try {
+            link.flush();
+            receive();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        long tick = world.getTick();
+        for (int i = 0; i < world.getPlayerCount(); i++) {
+            Remote remote = slots[i];
+            if (remote != null && tick - remote.lastHeard > TIMEOUT_TICKS) {
+                remove(remote);
+                remote = null;
+            }
+            // Movement is held from the newest input; presses seen since the last tick fire once
+            inputs[i] = remote == null ? 0 : remote.input | remote.fire;
+            if (remote != null) remote.fire = 0;
+        }
+        if (!bots.isEmpty()) bots.decide(world, inputs);
+        world.step(inputs);
+
+        ByteBuffer state = saveState();
+        try {
+            for (Remote remote : remotes.values()) {
+                sendState(remote, state);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void receive() throws IOException {
+        SocketAddress from;
+        while ((from = channel.receive(in.clear())) != null) {
+            in.flip();
+            try {
+                if (in.hasRemaining()) handle(in.get(), from);
+            } catch (BufferUnderflowException e) {
+                // Truncated or not ours; UDP carries anything
+            }
+        }
+    }
+
+    private void handle(byte type, SocketAddress from) throws IOException {
+        Remote remote = remotes.get(from);
+        switch (type) {
+            case JOIN -> {
+                if (remote == null && in.getInt() == PROTOCOL) remote = add(from);
+                // A repeated JOIN means the WELCOME was lost
+                out.clear();
+                if (remote == null) {
+                    out.put(REJECT);
+                } else {
+                    out.put(WELCOME).put((byte) remote.player).put((byte) world.getPlayerCount());
+                }
+                send(out.flip(), from);
+            }
+            case INPUT -> {
+                if (remote != null) readInput(remote);
+            }
+            case LEAVE -> {
+                if (remote != null) remove(remote);
+            }
+            default -> {
+                // Unknown packet
+            }
+        }
+    }
+
+    // Takes the first free player, or returns null if the match is full
+    private Remote add(SocketAddress address) {
+        for (int i = 0; i < world.getPlayerCount(); i++) {
+            if (slots[i] != null) continue;
+            Remote remote = new Remote(address, i, world.getTick());
+            slots[i] = remote;
+            remotes.put(address, remote);
+            bots.setController(i, null);
+            return remote;
+        }
+        return null;
+    }
+
+    private void remove(Remote remote) {
+        slots[remote.player] = null;
+        remotes.remove(remote.address);
+        if (BotPool.ENABLED) bots.setController(remote.player, new BotController());
+    }
+
+    private void readInput(Remote remote) {
+        int sequence = in.getInt();
+        long ackTick = in.getLong();
+        int n = Math.min(in.get(), in.remaining());
+        remote.lastHeard = world.getTick();
+        if (ackTick > remote.ackTick && ackTick <= world.getTick()) remote.ackTick = ackTick;
+        if (sequence <= remote.sequence || n <= 0) return;  // Late or repeated
+
+        int newest = in.get(in.position());
+        int unseen = (int) Math.min(n, (long) sequence - remote.sequence);
+        for (int k = 0; k < unseen; k++) {
+            remote.fire |= in.get(in.position() + k) & InputFrame.FIRE;
+        }
+        remote.input = newest & InputFrame.MOVEMENT;
+        remote.sequence = sequence;
+    }
+
+    // Keeps the state after this tick as a base for later deltas
+    private ByteBuffer saveState() {
+        int slot = (int) (world.getTick() % HISTORY);
+        if (history[slot] == null || history[slot].capacity() < world.maxStateSize()) {
+            history[slot] = ByteBuffer.allocate(world.maxStateSize());
+        }
+        ByteBuffer state = history[slot].clear();
+        world.saveState(state);
+        historyTicks[slot] = world.getTick();
+        return state.flip();
+    }
+
+    private void sendState(Remote remote, ByteBuffer state) throws IOException {
+        out.clear();
+        out.put(STATE).putLong(world.getTick());
+
+        int slot = (int) (remote.ackTick % HISTORY);
+        if (remote.ackTick >= 0 && historyTicks[slot] == remote.ackTick) {
+            if (delta.capacity() < 2 * state.remaining() + 16) {
+                delta = ByteBuffer.allocate(2 * state.remaining() + 16);
+            }
+            StateDelta.encode(history[slot], state, delta.clear());
+            if (delta.position() < state.remaining() && delta.position() <= out.remaining() - 8) {
+                out.putLong(remote.ackTick).put(delta.flip());
+                send(out.flip(), remote.address);
+                return;
+            }
+        }
+        // Nothing the client is known to have, or the delta wouldn't save anything. A state too
+        // big for a packet is skipped; the client keeps what it has until one fits.
+        if (state.remaining() > out.remaining() - 8) return;
+        out.putLong(-1).put(state.duplicate());
+        send(out.flip(), remote.address);
+    }
+
+    private void send(ByteBuffer packet, SocketAddress to) throws IOException {
+        bytesSent += packet.remaining();
+        link.send(packet, to);
+    }
+
+    private static final class Remote {
+        final SocketAddress address;
+        final int player;
+        int sequence = -1;  // Newest input packet taken
+        int input;          // Held movement bits
+        int fire;           // Fire pressed since the last tick
+        long ackTick = -1;  // Newest state the client has
+        long lastHeard;
+
+        Remote(SocketAddress address, int player, long tick) {
+            this.address = address;
+            this.player = player;
+            this.lastHeard = tick;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        // Beyond four players the arena grows so each tank keeps about the same room
+        double scale = Math.sqrt(Math.max(1.0, players / 4.0));
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : (int) Math.round(GameWorld.ROWS * scale);
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : (int) Math.round(GameWorld.COLS * scale);
+
+        NetServer server = new NetServer(port, players, rows, cols);
+        server.start();
+        System.out.println("Serving " + players + " players on a " + rows + "x" + cols + " maze, port " + server.getPort());
+        Thread.currentThread().join();  // The loop thread is a daemon
+    }
+}
@@ -0,0 +1,25 @@
+import java.awt.*;
+
+/**
+ * The colour that identifies each player on the score board and in the arena.
+ * The first four match the tank sprites; further players get evenly spread hues.
+ */
+public final class PlayerColors {
+    private static final Color[] SPRITE_COLORS = {
+            Color.GREEN, Color.RED, new Color(255, 140, 0), Color.YELLOW
+    };
+    private static final float GOLDEN_RATIO = 0.618034f;
+
+    private PlayerColors() {
+    }
+
+    public static Color get(int player) {
+        if (player < SPRITE_COLORS.length) return SPRITE_COLORS[player];
+        return Color.getHSBColor((player * GOLDEN_RATIO) % 1f, 0.7f, 1f);
+    }
+
+    // True if the player's sprite already shows their colour
+    public static boolean hasSprite(int player) {
+        return player < SPRITE_COLORS.length;
+    }
+}
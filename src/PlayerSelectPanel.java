@@ -50,7 +50,7 @@ public class PlayerSelectPanel extends JPanel {
 
         JButton increaseBtn = createMenuButton("+");
         increaseBtn.addActionListener(e -> {
-            playerCount = Math.min(4, playerCount + 1);
+            playerCount = Math.min(GameWorld.MAX_PLAYERS, playerCount + 1);
             updateCount();
         });
 
@@ -67,7 +67,10 @@ public class PlayerSelectPanel extends JPanel {
         JButton backButton = createMenuButton("BACK TO MENU");
 
         startButton.addActionListener(e -> {
+            // Beyond four players the arena grows so each tank keeps about the same room
+            double scale = Math.sqrt(Math.max(1.0, playerCount / 4.0));
             gamePanel.setPlayerCount(playerCount);
+            gamePanel.setMazeSize((int) Math.round(GameWorld.ROWS * scale), (int) Math.round(GameWorld.COLS * scale));
             gamePanel.resetGame();
             gamePanel.scorePanel.setPlayerCount(playerCount);
             cardLayout.show(container, "game");
@@ -1,51 +1,38 @@
-import java.awt.Color;
-import java.awt.Graphics2D;
-
 public class PowerUp {
     public static final int SIZE = 15;
-    private static final int LIFESPAN = 60000; // 1 minute in milliseconds
+    private static final int LIFESPAN = 60 * GameWorld.TICKS_PER_SECOND; // 1 minute in ticks
 
-    private final GamePanel.PowerUpType type;
+    private final GameWorld.PowerUpType type;
     private final int x, y;
-    private final long spawnTime;
+    private final long spawnTick;
 
-    public PowerUp(GamePanel.PowerUpType type, int x, int y) {
+    public PowerUp(GameWorld.PowerUpType type, int x, int y, long spawnTick) {
         this.type = type;
         this.x = x;
         this.y = y;
-        this.spawnTime = System.currentTimeMillis();
+        this.spawnTick = spawnTick;
     }
 
-    public GamePanel.PowerUpType getType() {
+    public GameWorld.PowerUpType getType() {
         return type;
     }
 
     public int getX() { return x; }
     public int getY() { return y; }
+    public long getSpawnTick() { return spawnTick; }
 
-    public boolean isActive() {
-        return System.currentTimeMillis() - spawnTime < LIFESPAN;
+    public boolean isActive(long tick) {
+        return tick - spawnTick < LIFESPAN;
     }
 
-    public void draw(Graphics2D g) {
-        if (!isActive()) return;
-
-        switch (type) {
-            case BIG_BULLETS -> g.setColor(Color.ORANGE);
-            case MINI_BULLETS -> g.setColor(Color.CYAN);
-            case HOMING_MISSILE -> g.setColor(Color.MAGENTA);
-            case BLOCK -> g.setColor(Color.GREEN);
-        }
-        g.fillOval(x - SIZE / 2, y - SIZE / 2, SIZE, SIZE);
-
-        float progress = 1 - (float)(System.currentTimeMillis() - spawnTime) / LIFESPAN;
-        g.setColor(new Color(0, 0, 0, 100));
-        g.drawArc(x - SIZE/2, y - SIZE/2, SIZE, SIZE, 90, (int)(360 * progress));
+    // Fraction of the lifespan still left, 1 when just spawned
+    public float remaining(long tick) {
+        return 1 - (float) (tick - spawnTick) / LIFESPAN;
     }
 
     public boolean collidesWith(float px, float py) {
         double dx = x - px;
         double dy = y - py;
-        return Math.sqrt(dx * dx + dy * dy) < SIZE / 2.0;
+        return dx * dx + dy * dy < (SIZE / 2.0) * (SIZE / 2.0);
     }
 }
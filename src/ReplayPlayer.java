@@ -0,0 +1,221 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays a {@link ReplayWriter} recording back through a {@link GameWorld}, one tick per
+ * {@link #step}, so a match can be watched again, fast-forwarded or run headless to chase
+ * a bug. Every KEYFRAME_TICKS played, the world state and read position are kept as a
+ * keyframe, so seeking only has to run forward from the nearest one.
+ */
+public class ReplayPlayer implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int HEADER_SIZE = 18;
+    private static final int KEYFRAME_TICKS = 10 * GameWorld.TICKS_PER_SECOND;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final long seed;
+    private final int rows, cols, players;
+    private final int[] inputs = new int[GameWorld.MAX_PLAYERS];
+    private int run = 0;  // Ticks left on the current inputs
+    private long tick = 0;
+    private boolean ended = false;
+
+    // Keyframe k is at tick k * KEYFRAME_TICKS. Most are stored as a delta against the last
+    // full one; within a round only what moved differs.
+    private final List<Keyframe> keyframes = new ArrayList<>();
+    private ByteBuffer lastFull;
+    private ByteBuffer scratch = ByteBuffer.allocate(0);
+
+    public ReplayPlayer(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.limit(0);
+        fill(HEADER_SIZE);
+        if (buffer.getInt() != ReplayWriter.MAGIC || buffer.get() != ReplayWriter.VERSION) {
+            channel.close();
+            throw new IOException("Not a replay: " + path);
+        }
+        seed = buffer.getLong();
+        rows = buffer.getShort();
+        cols = buffer.getShort();
+        players = buffer.get();
+    }
+
+    public long getSeed() { return seed; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getPlayerCount() { return players; }
+
+    // Ticks played since the start of the match
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    // Sets the world up as the recorded match began and rewinds to its first tick
+    public void start(GameWorld world) throws IOException {
+        world.setSeed(seed);
+        world.setPlayerCount(players);
+        world.setMazeSize(rows, cols);
+        world.resetGame();
+
+        channel.position(HEADER_SIZE);
+        buffer.limit(0);
+        run = 0;
+        tick = 0;
+        ended = false;
+    }
+
+    // Plays one recorded tick. Returns false, without stepping, once the recording is over.
+    public boolean step(GameWorld world) throws IOException {
+        if (tick % KEYFRAME_TICKS == 0 && tick / KEYFRAME_TICKS == keyframes.size()) {
+            addKeyframe(world);
+        }
+        while (run == 0) {
+            if (ended) return false;
+            readRecord();
+        }
+        world.step(inputs);
+        run--;
+        tick++;
+        return true;
+    }
+
+    // Moves to the given tick of the match, or as far as the recording goes
+    public void seek(GameWorld world, long target) throws IOException {
+        int k = (int) Math.min(target / KEYFRAME_TICKS, keyframes.size() - 1);
+        if (k < 0) {
+            start(world);
+        } else if (target < tick || keyframes.get(k).tick > tick) {
+            restoreKeyframe(world, k);
+        }
+        while (tick < target && step(world)) {
+            // Run forward
+        }
+    }
+
+    private void addKeyframe(GameWorld world) throws IOException {
+        if (scratch.capacity() < world.maxStateSize()) {
+            scratch = ByteBuffer.allocate(world.maxStateSize());
+        }
+        scratch.clear();
+        world.saveState(scratch);
+        scratch.flip();
+
+        Keyframe keyframe = new Keyframe();
+        keyframe.tick = tick;
+        keyframe.position = channel.position() - buffer.remaining();
+        keyframe.run = run;
+        keyframe.inputs = Arrays.copyOf(inputs, players);
+        if (lastFull != null) {
+            ByteBuffer delta = ByteBuffer.allocate(scratch.remaining() + 16);
+            StateDelta.encode(lastFull, scratch, delta);
+            if (delta.position() < scratch.remaining() / 2) {
+                keyframe.base = lastFull;
+                keyframe.state = ByteBuffer.wrap(Arrays.copyOf(delta.array(), delta.position()));
+            }
+        }
+        if (keyframe.state == null) {
+            keyframe.state = ByteBuffer.wrap(Arrays.copyOf(scratch.array(), scratch.remaining()));
+            lastFull = keyframe.state;
+        }
+        keyframes.add(keyframe);
+    }
+
+    private void restoreKeyframe(GameWorld world, int k) throws IOException {
+        Keyframe keyframe = keyframes.get(k);
+        ByteBuffer state = keyframe.state.duplicate();
+        if (keyframe.base != null) {
+            scratch.clear();
+            StateDelta.decode(keyframe.base.duplicate(), state, scratch);
+            scratch.flip();
+            state = scratch;
+        }
+        world.restoreState(state);
+
+        channel.position(keyframe.position);
+        buffer.limit(0);
+        run = keyframe.run;
+        System.arraycopy(keyframe.inputs, 0, inputs, 0, players);
+        tick = keyframe.tick;
+        ended = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readRecord() throws IOException {
+        if (!fillAny()) {
+            ended = true;  // Cut short, say by a crash; play what there is
+            return;
+        }
+        int n = readVarint();
+        if (n > 0) {
+            fill(players);
+            for (int i = 0; i < players; i++) {
+                inputs[i] = buffer.get();
+            }
+            run = n;
+            return;
+        }
+
+        fill(1);
+        switch (buffer.get()) {
+            case ReplayWriter.EVENT_END -> ended = true;
+            default -> throw new IOException("Corrupt replay at tick " + tick);
+        }
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            fill(1);
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Corrupt replay at tick " + tick);
+    }
+
+    // False if the channel has nothing left to read
+    private boolean fillAny() throws IOException {
+        if (buffer.hasRemaining()) return true;
+        buffer.clear();
+        int read = channel.read(buffer);
+        buffer.flip();
+        return read > 0;
+    }
+
+    // Makes sure the next bytes are in the buffer, reading more from the channel as needed
+    private void fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Replay ends early at tick " + tick);
+            }
+        }
+        buffer.flip();
+    }
+
+    private static class Keyframe {
+        long tick;
+        long position;    // Of the next record in the file
+        int run;
+        int[] inputs;
+        ByteBuffer state; // GameWorld.saveState(), or a StateDelta against base
+        ByteBuffer base;  // Null if state is complete
+    }
+}
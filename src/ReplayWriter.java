@@ -0,0 +1,106 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records a match as the inputs fed to {@link GameWorld#step(int[])}, which together with
+ * the match seed is all it takes to play it again, see {@link ReplayPlayer}.
+ *
+ * Format, big-endian:
+ * <pre>
+ *   int MAGIC, byte VERSION, long seed, short rows, short cols, byte players
+ *   then records until EVENT_END:
+ *     varint n > 0, then one input byte per player: those inputs for the next n ticks
+ *     varint 0, then an event byte, see EVENT_*
+ * </pre>
+ * Inputs are held for many ticks at a time, so a minute of play is a few KB.
+ */
+public class ReplayWriter implements Closeable {
+    static final int MAGIC = 0x54545250;  // "TTRP"
+    static final byte VERSION = 2;  // GameWorld's own timers since 2; older matches play out differently
+    static final int EVENT_END = 0;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int DRAIN_TICKS = 5 * GameWorld.TICKS_PER_SECOND;  // So a crash loses little
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] inputs;  // Inputs of the current run
+    private int run = 0;          // Ticks the current inputs have been held for
+    private int ticksSinceDrain = 0;
+
+    public ReplayWriter(Path path, long seed, int rows, int cols, int players) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        inputs = new byte[players];
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(seed);
+        buffer.putShort((short) rows);
+        buffer.putShort((short) cols);
+        buffer.put((byte) players);
+    }
+
+    // The inputs about to be passed to step(); one call per tick
+    public void tick(int[] playerInputs) throws IOException {
+        if (++ticksSinceDrain == DRAIN_TICKS) {
+            ticksSinceDrain = 0;
+            if (buffer.position() > 0) drain();
+        }
+
+        boolean same = run > 0;
+        for (int i = 0; i < inputs.length && same; i++) {
+            same = inputs[i] == (byte) playerInputs[i];
+        }
+        if (same) {
+            run++;
+            return;
+        }
+
+        flushRun();
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = (byte) playerInputs[i];
+        }
+        run = 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            event(EVENT_END);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void event(int type) throws IOException {
+        flushRun();
+        reserve(2);
+        Varints.put(buffer, 0);
+        buffer.put((byte) type);
+    }
+
+    private void flushRun() throws IOException {
+        if (run == 0) return;
+        reserve(5 + inputs.length);
+        Varints.put(buffer, run);
+        buffer.put(inputs);
+        run = 0;
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
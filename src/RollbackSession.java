@@ -0,0 +1,415 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Peer-to-peer match with rollback, for two to four players on their own machines. Every
+ * peer runs the whole simulation and never waits on the network for a tick: inputs of the
+ * other players that haven't arrived yet are predicted, held from their last known input
+ * without fire, and when the real ones turn up different, the world is put back to the
+ * tick before the first wrong one and simulated forward again. step() is deterministic and
+ * a saveState()/restoreState() pair takes a few microseconds, so correcting a handful of
+ * ticks fits easily in one.
+ *
+ * A peer that sees itself further ahead of another than that one sees itself skips a tick
+ * now and then, and none predicts more than MAX_PREDICTION ticks, so corrections stay short.
+ * Packets go straight to every peer, big-endian, first byte the type:
+ * <pre>
+ *   HELLO byte player, byte flags, long seed, short rows, short cols
+ *   INPUT byte player, long ack, long firstTick, byte n, n inputs from firstTick on,
+ *         byte advantage, long checkTick, int checksum
+ * </pre>
+ * ack is the last tick up to which the sender has all of the receiver's inputs; inputs are
+ * repeated until acknowledged. checksum is a CRC of the state after checkTick, once every
+ * peer's inputs up to it are known, to catch a desync.
+ */
+public class RollbackSession implements Closeable {
+    public static final int MAX_PEERS = 4;
+    static final byte HELLO = 1;
+    static final byte INPUT = 2;
+    private static final int HAS_SETTINGS = 1;  // HELLO flags
+    private static final int STARTED = 2;
+
+    private static final int RING = 64;             // Ticks of inputs and states kept
+    private static final int MAX_PREDICTION = 8;    // Ticks ahead of a peer's last known input
+    private static final int MAX_SENT_INPUTS = 32;  // Unacknowledged inputs repeated per packet
+    private static final int HELLO_TICKS = 10;
+    private static final int SYNC_TICKS = GameWorld.TICKS_PER_SECOND / 2;
+    private static final int CHECK_TICKS = GameWorld.TICKS_PER_SECOND;
+    private static final int CHECK_RING = 8;
+    private static final int PACKET_SIZE = 64 + MAX_SENT_INPUTS;
+
+    private final DatagramChannel channel;
+    private final NetLink link;
+    private final InetSocketAddress[] peers;
+    private final int localPlayer;
+    private final int players;
+    private final boolean[] heard;
+    private boolean settingsKnown;
+    private long seed;
+    private int rows, cols;
+    private GameWorld world;  // Null until every peer has been heard from
+    private GameWorld.Listener listener;
+
+    // inputs[p][t % RING] is player p's input for tick t, known up to confirmed[p]; used is
+    // what the simulation actually ran with, to spot wrong predictions
+    private final byte[][] inputs;
+    private final byte[][] used;
+    private final long[] confirmed;
+    private final long[] acked;              // Newest local input each peer has
+    private final int[] remoteAdvantage;     // How far ahead of us each peer sees itself
+    private final int[] stepInputs = new int[GameWorld.MAX_PLAYERS];
+    private final ByteBuffer[] states = new ByteBuffer[RING];  // After tick t, at t % RING
+    private long tick = 0;
+    private long rollbackFrom = Long.MAX_VALUE;
+    private int waitTicks = 0;
+    private int sinceSync = 0;
+
+    private final long[] checkTicks = new long[CHECK_RING];  // Own checks, with each peer's last
+    private final long[] peerCheckTicks;
+    private final int[] peerChecksums;
+    private final int[] checksums = new int[CHECK_RING];
+    private long nextCheck = CHECK_TICKS;
+    private final CRC32 crc = new CRC32();
+    private final boolean[] alive = new boolean[GameWorld.MAX_PLAYERS];
+
+    private final ByteBuffer in = ByteBuffer.allocate(NetServer.MAX_PACKET);
+    private final ByteBuffer out = ByteBuffer.allocate(PACKET_SIZE);
+    private long rollbacks, resimulated, stalls, desyncs;
+
+    // Scores still have to reach the screen during a correction, effects would repeat
+    private final GameWorld.Listener quiet = new GameWorld.Listener() {
+        @Override public void tankExploded(float x, float y) {}
+        @Override public void shieldAbsorbed(float x, float y) {}
+        @Override public void scoresChanged(int[] scores) {
+            if (listener != null) listener.scoresChanged(scores);
+        }
+    };
+
+    // peers holds every player's address in player order, this one's included for its port.
+    // Player 0 picks the seed and maze size; the others' rows and cols are ignored.
+    public RollbackSession(int localPlayer, InetSocketAddress[] peers, int rows, int cols) throws IOException {
+        if (peers.length < 2 || peers.length > MAX_PEERS || localPlayer < 0 || localPlayer >= peers.length) {
+            throw new IllegalArgumentException("Need 2 to " + MAX_PEERS + " peers and a local player among them");
+        }
+        this.peers = peers;
+        this.localPlayer = localPlayer;
+        this.players = peers.length;
+        heard = new boolean[players];
+        heard[localPlayer] = true;
+        inputs = new byte[players][RING];
+        used = new byte[players][RING];
+        confirmed = new long[players];
+        acked = new long[players];
+        remoteAdvantage = new int[players];
+        peerCheckTicks = new long[players];
+        peerChecksums = new int[players];
+        Arrays.fill(checkTicks, -1);
+        if (localPlayer == 0) {
+            seed = GameRandom.newSeed();
+            this.rows = rows;
+            this.cols = cols;
+            settingsKnown = true;
+        }
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(peers[localPlayer].getPort()));
+        link = new NetLink(channel);
+    }
+
+    public void setListener(GameWorld.Listener listener) {
+        this.listener = listener;
+        if (world != null) world.setListener(listener);
+    }
+
+    // The match being played, null until every peer is there
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    public int getLocalPlayer() { return localPlayer; }
+    public long getTick() { return tick; }
+    public long getRollbacks() { return rollbacks; }
+    public long getResimulatedTicks() { return resimulated; }
+    public long getStalls() { return stalls; }
+    public long getDesyncs() { return desyncs; }
+
+    // One tick of the game loop: takes in what arrived, corrects wrong predictions, then
+    // simulates the next tick with the local player's input, unless this peer is too far
+    // ahead and waits a tick instead
+    public void tick(int localInput) throws IOException {
+        link.flush();
+        receive();
+        if (world == null) {
+            if (tick++ % HELLO_TICKS == 0) sendHellos();
+            if (!ready()) return;
+            start();
+        }
+
+        rollBack();
+        if (mustWait()) {
+            stalls++;
+        } else {
+            advance(localInput);
+        }
+        check();
+        sendInputs();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean ready() {
+        if (!settingsKnown) return false;
+        for (boolean h : heard) {
+            if (!h) return false;
+        }
+        return true;
+    }
+
+    // Every peer builds the same world from the same settings, at tick 0
+    private void start() throws IOException {
+        world = new GameWorld(rows, cols, seed);
+        world.setPlayerCount(players);
+        world.setSeed(seed);
+        world.resetGame();
+        world.setListener(listener);
+        tick = 0;
+        saveState();
+        sendHellos();  // Peers still waiting for the settings
+    }
+
+    private void advance(int localInput) {
+        inputs[localPlayer][slot(tick + 1)] = (byte) localInput;
+        confirmed[localPlayer] = tick + 1;
+        step(tick + 1);
+        tick++;
+        saveState();
+    }
+
+    // Runs tick t with the best inputs known for it
+    private void step(long t) {
+        for (int p = 0; p < players; p++) {
+            byte input;
+            if (t <= confirmed[p]) {
+                input = inputs[p][slot(t)];
+            } else {
+                // Predicted: still holding the same keys, but not pressing fire again
+                input = confirmed[p] > 0 ? (byte) (inputs[p][slot(confirmed[p])] & InputFrame.MOVEMENT) : 0;
+            }
+            used[p][slot(t)] = input;
+            stepInputs[p] = input;
+        }
+        world.step(stepInputs);
+    }
+
+    private void saveState() {
+        int slot = slot(tick);
+        if (states[slot] == null || states[slot].capacity() < world.maxStateSize()) {
+            states[slot] = ByteBuffer.allocate(world.maxStateSize());
+        }
+        world.saveState(states[slot].clear());
+        states[slot].flip();
+    }
+
+    // Goes back to before the first tick that ran on a wrong prediction and plays forward
+    // again. Effects of that first run stand; tanks that only die in the corrected run get
+    // their explosion now. The restore rewrites the maze's walls in place, even back across a
+    // new round; frames already published keep their own frozen copy, so the renderer never
+    // sees a half-restored layout.
+    private void rollBack() {
+        if (rollbackFrom > tick) {
+            rollbackFrom = Long.MAX_VALUE;
+            return;
+        }
+        long from = rollbackFrom;
+        rollbackFrom = Long.MAX_VALUE;
+        rollbacks++;
+        resimulated += tick - from + 1;
+
+        for (int p = 0; p < players; p++) {
+            alive[p] = !world.getPlayer(p).isDestroyed();
+        }
+        world.setListener(quiet);
+        world.restoreState(states[slot(from - 1)].duplicate());
+        long end = tick;
+        tick = from - 1;
+        while (tick < end) {
+            step(tick + 1);
+            tick++;
+            saveState();
+        }
+        world.setListener(listener);
+
+        if (listener == null) return;
+        for (int p = 0; p < players; p++) {
+            Tank tank = world.getPlayer(p);
+            if (alive[p] && tank.isDestroyed()) listener.tankExploded(tank.getX(), tank.getY());
+        }
+    }
+
+    private boolean mustWait() {
+        for (int p = 0; p < players; p++) {
+            if (p != localPlayer && tick + 1 - confirmed[p] > MAX_PREDICTION) return true;
+        }
+        if (waitTicks > 0) {
+            waitTicks--;
+            return true;
+        }
+        // Both sides see the other behind by the latency; whatever is left over is how far
+        // this peer really runs ahead, half of it on each side
+        if (++sinceSync >= SYNC_TICKS) {
+            sinceSync = 0;
+            for (int p = 0; p < players; p++) {
+                if (p == localPlayer) continue;
+                int ahead = (advantage(p) - remoteAdvantage[p]) / 2;
+                waitTicks = Math.max(waitTicks, Math.min(ahead, MAX_PREDICTION / 2));
+            }
+        }
+        return false;
+    }
+
+    private int advantage(int p) {
+        return (int) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, tick - confirmed[p]));
+    }
+
+    // Checksums the state after the next check tick once every peer's inputs up to it are in
+    private void check() {
+        long known = tick;
+        for (long c : confirmed) {
+            known = Math.min(known, c);
+        }
+        while (nextCheck <= tick - RING) {
+            nextCheck += CHECK_TICKS;  // Its state is gone; not after the first seconds
+        }
+        if (nextCheck > known) return;
+
+        crc.reset();
+        crc.update(states[slot(nextCheck)].duplicate());
+        int k = (int) (nextCheck / CHECK_TICKS % CHECK_RING);
+        checkTicks[k] = nextCheck;
+        checksums[k] = (int) crc.getValue();
+        for (int p = 0; p < players; p++) {
+            if (p != localPlayer) compareChecksum(p);
+        }
+        nextCheck += CHECK_TICKS;
+    }
+
+    private void sendHellos() throws IOException {
+        for (int p = 0; p < players; p++) {
+            if (p != localPlayer) sendHello(peers[p]);
+        }
+    }
+
+    private void sendHello(SocketAddress to) throws IOException {
+        out.clear();
+        int flags = (settingsKnown ? HAS_SETTINGS : 0) | (world != null ? STARTED : 0);
+        out.put(HELLO).put((byte) localPlayer).put((byte) flags)
+                .putLong(seed).putShort((short) rows).putShort((short) cols);
+        link.send(out.flip(), to);
+    }
+
+    private void sendInputs() throws IOException {
+        int k = (int) ((nextCheck / CHECK_TICKS - 1) % CHECK_RING);
+        long checkTick = checkTicks[k];
+        for (int p = 0; p < players; p++) {
+            if (p == localPlayer) continue;
+            long last = confirmed[localPlayer];
+            long first = Math.max(acked[p] + 1, last - MAX_SENT_INPUTS + 1);
+            int n = (int) Math.max(0, last - first + 1);
+
+            out.clear();
+            out.put(INPUT).put((byte) localPlayer).putLong(confirmed[p]).putLong(first).put((byte) n);
+            for (int i = 0; i < n; i++) {
+                out.put(inputs[localPlayer][slot(first + i)]);
+            }
+            out.put((byte) advantage(p)).putLong(checkTick).putInt(checksums[k]);
+            link.send(out.flip(), peers[p]);
+        }
+    }
+
+    private void receive() throws IOException {
+        while (channel.receive(in.clear()) != null) {
+            in.flip();
+            try {
+                byte type = in.get();
+                int p = in.get();
+                if (p < 0 || p >= players || p == localPlayer) continue;
+                heard[p] = true;
+                if (type == HELLO) {
+                    readHello(p);
+                } else if (type == INPUT) {
+                    readInputs(p);
+                }
+            } catch (BufferUnderflowException e) {
+                // Truncated or not ours
+            }
+        }
+    }
+
+    private void readHello(int p) throws IOException {
+        int flags = in.get();
+        long helloSeed = in.getLong();
+        int helloRows = in.getShort(), helloCols = in.getShort();
+        if ((flags & HAS_SETTINGS) != 0 && !settingsKnown) {
+            seed = helloSeed;
+            rows = helloRows;
+            cols = helloCols;
+            settingsKnown = true;
+        }
+        if (world != null && (flags & STARTED) == 0) sendHello(peers[p]);  // It may be missing the settings
+    }
+
+    private void readInputs(int p) {
+        acked[p] = Math.max(acked[p], in.getLong());
+        long first = in.getLong();
+        int n = in.get();
+        int base = in.position();
+        in.position(base + n);
+        remoteAdvantage[p] = in.get();
+        long checkTick = in.getLong();
+        int checksum = in.getInt();
+
+        for (int i = 0; i < n; i++) {
+            long t = first + i;
+            if (t <= confirmed[p]) continue;
+            if (t != confirmed[p] + 1 || t > tick + RING / 2) break;  // A gap, or far beyond the ring
+            byte input = in.get(base + i);
+            inputs[p][slot(t)] = input;
+            confirmed[p] = t;
+            if (world != null && t <= tick && used[p][slot(t)] != input) {
+                rollbackFrom = Math.min(rollbackFrom, t);
+            }
+        }
+
+        if (checkTick > peerCheckTicks[p]) {
+            peerCheckTicks[p] = checkTick;
+            peerChecksums[p] = checksum;
+            compareChecksum(p);
+        }
+    }
+
+    // Whichever side gets to a check tick second compares
+    private void compareChecksum(int p) {
+        long checkTick = peerCheckTicks[p];
+        int k = (int) (checkTick / CHECK_TICKS % CHECK_RING);
+        if (checkTick > 0 && checkTicks[k] == checkTick && checksums[k] != peerChecksums[p]) {
+            desyncs++;
+            peerChecksums[p] = checksums[k];  // Report each once
+            System.err.println("Desync with player " + (p + 1) + " at tick " + checkTick);
+        }
+    }
+
+    private static int slot(long t) {
+        return (int) (t % RING);
+    }
+}
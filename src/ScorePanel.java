@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ScorePanel extends JPanel {
+    private static final int KEYBOARD_PLAYERS = 4;  // Rows in the controls table
+    private static final int MAX_SCORE_ROWS_SHOWN = 8;
+
     private final List<JLabel> scoreLabels = new ArrayList<>();
     private final List<JLabel> controlLabels = new ArrayList<>();
     private int playerCount = 2;
@@ -11,7 +14,6 @@ public class ScorePanel extends JPanel {
     private final JPanel controlsPanel;
     private final JPanel powerUpsPanel;
     private final JButton menuButton;
-    private final Color darkOrange = new Color(255, 140, 0);
 
     private static class PowerUpInfo {
         String name;
@@ -49,8 +51,15 @@ public class ScorePanel extends JPanel {
         scoresPanel = new JPanel();
         scoresPanel.setLayout(new BoxLayout(scoresPanel, BoxLayout.Y_AXIS));
         scoresPanel.setOpaque(false);
-        createScoreEntries();
-        mainPanel.add(scoresPanel);
+
+        // Large matches get more rows than fit, so the scores scroll
+        JScrollPane scoresScroll = new JScrollPane(scoresPanel,
+                ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        scoresScroll.setOpaque(false);
+        scoresScroll.getViewport().setOpaque(false);
+        scoresScroll.setBorder(BorderFactory.createEmptyBorder());
+        scoresScroll.setMaximumSize(new Dimension(260, MAX_SCORE_ROWS_SHOWN * 28));
+        mainPanel.add(scoresScroll);
         mainPanel.add(Box.createVerticalStrut(15));
 
         mainPanel.add(createControlsTitle());
@@ -120,15 +129,15 @@ public class ScorePanel extends JPanel {
         return button;
     }
 
-    private void createScoreEntries() {
-        Color[] colors = {Color.GREEN, Color.RED, darkOrange, Color.YELLOW};
-        for (int i = 0; i < 4; i++) {
+    // Adds score rows until there is one per player; rows are only ever hidden, not removed
+    private void createScoreEntries(int count) {
+        for (int i = scoreLabels.size(); i < count; i++) {
             JPanel playerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
             playerPanel.setOpaque(false);
             playerPanel.setMaximumSize(new Dimension(260, 24));
 
             JLabel dot = new JLabel("●");
-            dot.setForeground(colors[i]);
+            dot.setForeground(PlayerColors.get(i));
             dot.setFont(new Font("Arial", Font.BOLD, 14));
 
             JLabel scoreLabel = new JLabel("Player " + (i + 1) + ": 0");
@@ -144,14 +153,13 @@ public class ScorePanel extends JPanel {
     }
 
     private void createControlEntries() {
-        Color[] colors = {Color.GREEN, Color.RED, darkOrange, Color.YELLOW};
-        for (int i = 0; i < 4; i++) {
+        for (int i = 0; i < KEYBOARD_PLAYERS; i++) {
             JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
             controlPanel.setOpaque(false);
             controlPanel.setMaximumSize(new Dimension(260, 22));
 
             JLabel playerLabel = new JLabel("P" + (i + 1) + ":");
-            playerLabel.setForeground(colors[i]);
+            playerLabel.setForeground(PlayerColors.get(i));
             playerLabel.setFont(new Font("Arial", Font.BOLD, 12));
             playerLabel.setPreferredSize(new Dimension(25, 18));
 
@@ -187,13 +195,20 @@ public class ScorePanel extends JPanel {
     }
 
     public void setPlayerCount(int count) {
-        this.playerCount = Math.min(4, Math.max(2, count));
+        this.playerCount = Math.min(GameWorld.MAX_PLAYERS, Math.max(2, count));
+        createScoreEntries(playerCount);
         updateVisiblePlayers();
     }
 
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
     private void updateVisiblePlayers() {
-        for (int i = 0; i < 4; i++) {
+        for (int i = 0; i < scoreLabels.size(); i++) {
             scoresPanel.getComponent(i).setVisible(i < playerCount);
+        }
+        for (int i = 0; i < KEYBOARD_PLAYERS; i++) {
             controlsPanel.getComponent(i).setVisible(i < playerCount);
         }
         revalidate();
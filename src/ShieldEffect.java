@@ -14,6 +14,14 @@ public class ShieldEffect {
         this.startTime = System.currentTimeMillis();
     }
 
+    public float getX() { return x; }
+    public float getY() { return y; }
+
+    // How far from (x, y) the effect can draw: largest pulse plus stroke
+    public float getExtent() {
+        return size * 0.6f + 2;
+    }
+
     public void draw(Graphics g) {
         float progress = (System.currentTimeMillis() - startTime) / (float)DURATION;
         if (progress >= 1) return;
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+/**
+ * Entity indices bucketed by maze cell, so collision checks only look at the cells
+ * around a point instead of at every entity. Each cell is an intrusive linked list
+ * threaded through an int array, so clearing and refilling it every tick allocates
+ * nothing once the arrays have grown to fit.
+ */
+public class SpatialGrid {
+    private final int rows, cols;
+    private final int[] head;  // First index in each cell, -1 if empty
+    private int[] next;        // Next index in the same cell, by entity index
+    private int[] filled;      // Cells that have entries, so clear() only resets those
+    private int filledCount = 0;
+
+    public SpatialGrid(int rows, int cols, int capacity) {
+        this.rows = rows;
+        this.cols = cols;
+        head = new int[rows * cols];
+        next = new int[capacity];
+        filled = new int[capacity];
+        Arrays.fill(head, -1);
+    }
+
+    public void clear() {
+        for (int i = 0; i < filledCount; i++) {
+            head[filled[i]] = -1;
+        }
+        filledCount = 0;
+    }
+
+    public void insert(int index, float x, float y) {
+        if (index >= next.length) {
+            next = Arrays.copyOf(next, Math.max(index + 1, next.length * 2));
+        }
+        int cell = rowOf(y) * cols + colOf(x);
+        if (head[cell] < 0) {
+            if (filledCount == filled.length) {
+                filled = Arrays.copyOf(filled, Math.max(1, filled.length * 2));
+            }
+            filled[filledCount++] = cell;
+        }
+        next[index] = head[cell];
+        head[cell] = index;
+    }
+
+    // Cell row or column of a coordinate, clamped to the grid
+    public int rowOf(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) (y / GameWorld.CELL_SIZE)));
+    }
+
+    public int colOf(float x) {
+        return Math.max(0, Math.min(cols - 1, (int) (x / GameWorld.CELL_SIZE)));
+    }
+
+    // First index in a cell, then follow next() until it returns -1
+    public int first(int row, int col) {
+        return head[row * cols + col];
+    }
+
+    public int next(int index) {
+        return next[index];
+    }
+}
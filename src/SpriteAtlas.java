@@ -0,0 +1,78 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * A sprite scaled once to its draw size and pre-rotated into a fixed number of angle
+ * buckets, so drawing a frame is an untransformed blit. Atlases are loaded once per image
+ * and shared by everyone drawing that image.
+ */
+public class SpriteAtlas {
+    // -Dtanktrouble.spriteBuckets=N picks the number of angles; 0 rotates exactly every frame
+    public static final int DEFAULT_BUCKETS = Integer.getInteger("tanktrouble.spriteBuckets", 64);
+
+    private static final Map<String, SpriteAtlas> cache = new HashMap<>();
+
+    private final BufferedImage scaled;
+    private final BufferedImage[] rotations;  // Empty when rotating exactly
+    private final int width, height;
+
+    private SpriteAtlas(BufferedImage source, int width, int height, int buckets) {
+        this.width = width;
+        this.height = height;
+
+        scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = scaled.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(source, 0, 0, width, height, null);
+        g2.dispose();
+
+        rotations = new BufferedImage[Math.max(0, buckets)];
+        int frameSize = (int) Math.ceil(Math.hypot(width, height));
+        for (int i = 0; i < rotations.length; i++) {
+            BufferedImage frame = new BufferedImage(frameSize, frameSize, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D fg = frame.createGraphics();
+            fg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            fg.translate(frameSize / 2.0, frameSize / 2.0);
+            fg.rotate(i * 2 * Math.PI / rotations.length);
+            fg.drawImage(scaled, -width / 2, -height / 2, null);
+            fg.dispose();
+            rotations[i] = frame;
+        }
+    }
+
+    // Returns null if the image could not be loaded
+    public static synchronized SpriteAtlas get(String path, int width, int height, int buckets) {
+        String key = path + "@" + width + "x" + height + "/" + buckets;
+        SpriteAtlas atlas = cache.get(key);
+        if (atlas == null && !cache.containsKey(key)) {
+            try {
+                atlas = new SpriteAtlas(ImageIO.read(SpriteAtlas.class.getResource(path)), width, height, buckets);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            cache.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    // Draws the sprite centred on (x, y), facing angle radians
+    public void draw(Graphics2D g, float x, float y, float angle) {
+        if (rotations.length == 0) {
+            AffineTransform saved = g.getTransform();
+            g.translate(x, y);
+            g.rotate(angle);
+            g.drawImage(scaled, -width / 2, -height / 2, null);
+            g.setTransform(saved);
+            return;
+        }
+
+        int bucket = (int) Math.round(angle / (2 * Math.PI) * rotations.length);
+        BufferedImage frame = rotations[Math.floorMod(bucket, rotations.length)];
+        g.drawImage(frame, Math.round(x - frame.getWidth() / 2f), Math.round(y - frame.getHeight() / 2f), null);
+    }
+}
@@ -0,0 +1,91 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Delta coding of {@link GameWorld#saveState} snapshots against an earlier one. From one
+ * tick to the next only what moved changes, a few dozen bytes, so a delta is mostly skips
+ * over bytes the base already has.
+ *
+ * Format: varint length of the target, then pairs of varint count of bytes to copy from
+ * the base, varint count of literal bytes, the literal bytes. Whatever is left after the
+ * last pair is copied from the base.
+ */
+public final class StateDelta {
+    // Equal bytes shorter than this are cheaper sent along with the changes around them
+    private static final int MIN_SKIP = 4;
+
+    private StateDelta() {
+    }
+
+    // Writes the delta turning base into target. Both are read between position and limit
+    // and left untouched.
+    public static void encode(ByteBuffer base, ByteBuffer target, ByteBuffer out) {
+        int b0 = base.position(), t0 = target.position();
+        int length = target.remaining();
+        int common = Math.min(base.remaining(), length);
+        Varints.put(out, length);
+
+        int i = 0;
+        while (i < length) {
+            int skip = i;
+            i = skipEqual(base, b0, target, t0, i, common);
+            if (i == length) break;  // The rest comes from the base
+            skip = i - skip;
+
+            // Literal bytes up to the next stretch worth skipping
+            int literal = i;
+            while (i < length && !(i + MIN_SKIP <= common && equalFor(base, b0 + i, target, t0 + i, MIN_SKIP))) {
+                i++;
+            }
+
+            Varints.put(out, skip);
+            Varints.put(out, i - literal);
+            out.put(out.position(), target, t0 + literal, i - literal);
+            out.position(out.position() + i - literal);
+        }
+    }
+
+    // Rebuilds the target from base and a delta by encode(). Consumes the delta, leaves base
+    // untouched and writes the target at out's position.
+    public static void decode(ByteBuffer base, ByteBuffer delta, ByteBuffer out) {
+        int b0 = base.position();
+        int length = Varints.get(delta);
+
+        int i = 0;
+        while (delta.hasRemaining()) {
+            int skip = Varints.get(delta);
+            copy(base, b0 + i, out, skip);
+            i += skip;
+
+            int literal = Varints.get(delta);
+            copy(delta, delta.position(), out, literal);
+            delta.position(delta.position() + literal);
+            i += literal;
+        }
+        copy(base, b0 + i, out, length - i);
+    }
+
+    // First index from i on where the buffers differ, or length if they agree up to common
+    // and the target ends there too; compares eight bytes at a time where it can
+    private static int skipEqual(ByteBuffer base, int b0, ByteBuffer target, int t0, int i, int common) {
+        while (i + 8 <= common && base.getLong(b0 + i) == target.getLong(t0 + i)) {
+            i += 8;
+        }
+        while (i < common && base.get(b0 + i) == target.get(t0 + i)) {
+            i++;
+        }
+        return i == common && common == target.remaining() ? target.remaining() : i;
+    }
+
+    private static boolean equalFor(ByteBuffer a, int ai, ByteBuffer b, int bi, int n) {
+        for (int k = 0; k < n; k++) {
+            if (a.get(ai + k) != b.get(bi + k)) return false;
+        }
+        return true;
+    }
+
+    private static void copy(ByteBuffer from, int index, ByteBuffer out, int length) {
+        if (length == 0) return;  // index may be past the end of from
+        out.put(out.position(), from, index, length);
+        out.position(out.position() + length);
+    }
+}
@@ -1,32 +1,31 @@
-import java.awt.*;
+import java.nio.ByteBuffer;
 import java.util.Random;
-import java.util.Set;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Arrays;
 
 public class Tank {
     // Core tank properties
+    private final int index;  // Position in the world's player array
     private float x, y;
     private float angle = 0f;  // radians
-    private BufferedImage sprite;
+    private float prevX, prevY, prevAngle;  // State at the start of the last tick, for interpolation
     private boolean destroyed = false;
     private int score;
 
     // Movement and physics
-    private final float speed = 2.5f;
-    private final float rotationSpeed = 0.05f;
+    static final float SPEED = 2.5f;
+    static final float ROTATION_SPEED = 0.05f;
     public static final int SIZE = 20;
-    private static final int HITBOX_SIZE = 20;
+    static final int HITBOX_SIZE = 20;
+    private static final int SHOT_WINDOW_TICKS = 3 * GameWorld.TICKS_PER_SECOND;
+    private static final int MAX_RECORDED_SHOTS = 8;
+    static final int MAX_STATE_SIZE = 60 + MAX_RECORDED_SHOTS * 8;  // Bytes written by writeState()
 
     // Bullet management
     private int maxBullets = 5;
     private int activeBullets = 0;
     private int activeNormalBullets = 0;
     private int activePowerUpBullets = 0;
-    private final LinkedList<Long> shotTimestamps = new LinkedList<>();
+    private final long[] shotTimestamps = new long[MAX_RECORDED_SHOTS];  // Oldest first
+    private int shotCount = 0;
 
     // Power-up states
     private float bulletSize = 1.0f;
@@ -36,26 +35,12 @@ public class Tank {
     private int homingMissiles = 0;
     private boolean hasBlock = false;
 
-    // Effects
-    private ShieldEffect shieldEffect;
-
-    // Utilities
-    private static final Random rand = new Random();
-
-    public Tank(Color color) {
-        try {
-            if (color.equals(Color.GREEN)) {
-                sprite = ImageIO.read(getClass().getResource("/images/tank1.png"));
-            } else if (color.equals(Color.RED)) {
-                sprite = ImageIO.read(getClass().getResource("/images/tank2.png"));
-            } else if (color.equals(Color.ORANGE)) {
-                sprite = ImageIO.read(getClass().getResource("/images/tank3.png"));
-            } else {
-                sprite = ImageIO.read(getClass().getResource("/images/tank4.png"));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public Tank(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
     }
 
     public void incrementScore() {
@@ -76,7 +61,6 @@ public class Tank {
 
     public void giveBlock() {
         hasBlock = true;
-        System.out.println("Block granted");
     }
 
     public void removeBlock() {
@@ -86,38 +70,45 @@ public class Tank {
     public void destroy() {
         if (hasBlock) {
             hasBlock = false;
-            shieldEffect = new ShieldEffect(x, y, SIZE * 2);
-            System.out.println("Block absorbed the hit!");
             return;  // Early return prevents actual destruction
         }
         destroyed = true;
     }
 
-    public void spawn(Maze maze) {
+    // Places the tank in a random free cell picked with rand
+    public void spawn(Maze maze, Random rand) {
         reset();
         int attempts = 0;
         do {
-            x = rand.nextInt(maze.getCols()) * GamePanel.CELL_SIZE + GamePanel.CELL_SIZE / 2f;
-            y = rand.nextInt(maze.getRows()) * GamePanel.CELL_SIZE + GamePanel.CELL_SIZE / 2f;
+            x = rand.nextInt(maze.getCols()) * GameWorld.CELL_SIZE + GameWorld.CELL_SIZE / 2f;
+            y = rand.nextInt(maze.getRows()) * GameWorld.CELL_SIZE + GameWorld.CELL_SIZE / 2f;
             attempts++;
         } while (!maze.isAreaFree(x - HITBOX_SIZE / 2f, y - HITBOX_SIZE / 2f, HITBOX_SIZE, HITBOX_SIZE)
                 && attempts < 100);
         angle = 0f;
+        prevX = x;
+        prevY = y;
+        prevAngle = angle;
     }
 
-    public void update(Set<Integer> keys, Maze maze, int forward, int backward, int left, int right) {
+    // Moves the tank by one tick of an InputFrame; firing is up to GameWorld
+    public void update(Maze maze, int input) {
         if (destroyed) return;
 
-        if (keys.contains(left)) angle -= rotationSpeed;
-        if (keys.contains(right)) angle += rotationSpeed;
+        prevX = x;
+        prevY = y;
+        prevAngle = angle;
+
+        if (InputFrame.left(input)) angle -= ROTATION_SPEED;
+        if (InputFrame.right(input)) angle += ROTATION_SPEED;
 
         float dx = 0, dy = 0;
-        if (keys.contains(forward)) {
-            dx = (float) Math.cos(angle) * speed;
-            dy = (float) Math.sin(angle) * speed;
-        } else if (keys.contains(backward)) {
-            dx = -(float) Math.cos(angle) * speed;
-            dy = -(float) Math.sin(angle) * speed;
+        if (InputFrame.up(input)) {
+            dx = (float) StrictMath.cos(angle) * SPEED;
+            dy = (float) StrictMath.sin(angle) * SPEED;
+        } else if (InputFrame.down(input)) {
+            dx = -(float) StrictMath.cos(angle) * SPEED;
+            dy = -(float) StrictMath.sin(angle) * SPEED;
         }
 
         float nextX = x + dx;
@@ -127,96 +118,80 @@ public class Tank {
             x = nextX;
             y = nextY;
         }
-
-        if (shieldEffect != null && !shieldEffect.isActive()) {
-            shieldEffect = null;
-        }
-    }
-
-    public void draw(Graphics g) {
-        if (destroyed || sprite == null) return;
-
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.translate(x, y);
-        g2.rotate(angle);
-
-        int scaledWidth = 25;
-        int scaledHeight = 15;
-
-        g2.drawImage(sprite, -scaledWidth / 2, -scaledHeight / 2, scaledWidth, scaledHeight, null);
-        g2.dispose();
-
-        if (shieldEffect != null) {
-            shieldEffect.draw(g);
-        }
     }
 
     public boolean isDestroyed() {
         return destroyed;
     }
 
-    public boolean canFire() {
-        long now = System.currentTimeMillis();
-        while (!shotTimestamps.isEmpty() && now - shotTimestamps.peekFirst() > 3000) {
-            shotTimestamps.pollFirst();
+    public boolean canFire(long tick) {
+        int expired = 0;
+        while (expired < shotCount && tick - shotTimestamps[expired] > SHOT_WINDOW_TICKS) {
+            expired++;
+        }
+        if (expired > 0) {
+            System.arraycopy(shotTimestamps, expired, shotTimestamps, 0, shotCount - expired);
+            shotCount -= expired;
         }
-        return shotTimestamps.size() < 2;
+        return shotCount < 2;
     }
 
-    public void recordShot() {
-        shotTimestamps.add(System.currentTimeMillis());
+    public void recordShot(long tick) {
+        if (shotCount == MAX_RECORDED_SHOTS) {
+            System.arraycopy(shotTimestamps, 1, shotTimestamps, 0, --shotCount);
+        }
+        shotTimestamps[shotCount++] = tick;
     }
 
-    public Bullet fire(Maze maze, GamePanel gamePanel) {
-        if (destroyed || !canFire()) return null;
+    public boolean fire(Maze maze, GameWorld world) {
+        if (destroyed || !canFire(world.getTick())) return false;
 
         // Check if we're firing normal bullets
         if (!miniBulletsActive && bulletSize <= 1.0f && homingMissiles <= 0) {
-            if (activeNormalBullets >= maxBullets) return null;
+            if (activeNormalBullets >= maxBullets) return false;
         }
 
         float bulletSpeed = Bullet.SPEED;
-        int bulletLifetime = 600;
+        int bulletLifetime = Bullet.LIFETIME;
         float bulletRadius = 3f * bulletSize;
         float step = 1.0f;
         float maxDistance = Tank.SIZE / 2f + bulletRadius;
-        float dx = (float) Math.cos(angle) * step;
-        float dy = (float) Math.sin(angle) * step;
+        float dx = (float) StrictMath.cos(angle) * step;
+        float dy = (float) StrictMath.sin(angle) * step;
         float testX = x;
         float testY = y;
 
         for (float dist = 0; dist <= maxDistance; dist += step) {
             if (!maze.isAreaFree(testX - bulletRadius, testY - bulletRadius,
                     (int) (bulletRadius * 2), (int) (bulletRadius * 2))) {
-                gamePanel.tankHitWall(this);
-                return null;
+                world.tankHitWall(this);
+                return false;
             }
             testX += dx;
             testY += dy;
         }
 
-        recordShot();
+        recordShot(world.getTick());
+        BulletPool bullets = world.getBullets();
 
         if (miniBulletsActive) {
             float spread = 0.2f;
             float speedMultiplier = 1f;
             int customLifetime = 900;
 
-            Bullet b1 = new Bullet(testX, testY, angle - spread, maze,
+            bullets.add(testX, testY, angle - spread,
                     bulletSpeed * speedMultiplier, customLifetime,
-                    bulletSize, gamePanel, this);
+                    bulletSize, index, false);
 
-            Bullet b2 = new Bullet(testX, testY, angle, maze,  // center bullet
-                    bulletSpeed * speedMultiplier / 2, customLifetime,
-                    bulletSize, gamePanel, this);
+            // The center bullet used to be stepped twice per tick at half speed, so it
+            // keeps the same on-screen speed and range as a single full-speed bullet
+            bullets.add(testX, testY, angle,
+                    bulletSpeed * speedMultiplier, customLifetime / 2,
+                    bulletSize, index, false);
 
-            Bullet b3 = new Bullet(testX, testY, angle + spread, maze,
+            bullets.add(testX, testY, angle + spread,
                     bulletSpeed * speedMultiplier, customLifetime,
-                    bulletSize, gamePanel, this);
-
-            gamePanel.addBullet(b1);
-            gamePanel.addBullet(b2);
-            gamePanel.addBullet(b3);
+                    bulletSize, index, false);
 
             activePowerUpBullets += 3;  // Count as power-up bullets
             miniBulletsFired += 3;
@@ -225,39 +200,38 @@ public class Tank {
                 deactivateMiniBullets();
             }
 
-            return b2;
+            return true;
         }
 
         if (hasHomingMissiles()) {
-            Bullet missile = fireHomingMissile(maze, null, gamePanel);
-            if (missile != null) {
+            if (fireHomingMissile(maze, world)) {
                 activePowerUpBullets++;  // Count as power-up bullet
-                return missile;
+                return true;
             }
         }
 
         if (bulletSize > 1.0f) {  // Big bullet
-            Bullet bullet = new Bullet(testX, testY, angle, maze, bulletSpeed,
-                    bulletLifetime, bulletSize, gamePanel, this);
+            bullets.add(testX, testY, angle, bulletSpeed,
+                    bulletLifetime, bulletSize, index, false);
             activePowerUpBullets++;  // Count as power-up bullet
 
             // Reset bullet size back to normal after firing once
             bulletSize = 1.0f;
 
-            return bullet;
+            return true;
         }
 
 
         // Normal bullet
-        Bullet bullet = new Bullet(testX, testY, angle, maze, bulletSpeed,
-                bulletLifetime, bulletSize, gamePanel, this);
+        bullets.add(testX, testY, angle, bulletSpeed,
+                bulletLifetime, bulletSize, index, false);
         activeNormalBullets++;
-        return bullet;
+        return true;
     }
 
-    public void bulletDeactivated(Bullet bullet) {
-        if (bullet.getSize() > 1.0f || bullet instanceof HomingMissile ||
-                (bullet.getSize() < 1.0f && miniBulletsActive)) {
+    public void bulletDeactivated(float size, boolean missile) {
+        if (size > 1.0f || missile ||
+                (size < 1.0f && miniBulletsActive)) {
             if (activePowerUpBullets > 0) {
                 activePowerUpBullets--;
             }
@@ -294,53 +268,36 @@ public class Tank {
         homingMissiles = 0;
     }
 
-    public Bullet fireHomingMissile(Maze maze, Tank[] allPlayers, GamePanel gamePanel) {
-        if (destroyed || !canFire() || activeBullets >= maxBullets || homingMissiles <= 0) return null;
+    public boolean fireHomingMissile(Maze maze, GameWorld world) {
+        if (destroyed || !canFire(world.getTick()) || activeBullets >= maxBullets || homingMissiles <= 0) return false;
 
         homingMissiles--;
-        recordShot();
+        recordShot(world.getTick());
         activeBullets++;
 
         // Initial wall collision check (same as regular bullets)
         float bulletRadius = 3f * 1.0f; // Normal size for missiles
         float step = 1.0f;
         float maxDistance = Tank.SIZE / 2f + bulletRadius;
-        float dx = (float) Math.cos(angle) * step;
-        float dy = (float) Math.sin(angle) * step;
+        float dx = (float) StrictMath.cos(angle) * step;
+        float dy = (float) StrictMath.sin(angle) * step;
         float testX = x;
         float testY = y;
 
         for (float dist = 0; dist <= maxDistance; dist += step) {
             if (!maze.isAreaFree(testX - bulletRadius, testY - bulletRadius,
                     (int) (bulletRadius * 2), (int) (bulletRadius * 2))) {
-                gamePanel.tankHitWall(this);
-                return null;
+                world.tankHitWall(this);
+                return false;
             }
             testX += dx;
             testY += dy;
         }
 
-        return new HomingMissile(
-                testX, // Use the tested position
-                testY,
-                angle,
-                maze,
-                Arrays.asList(allPlayers),
-                1.0f) {
-
-            @Override
-            public void update(Maze maze) {
-                super.update(maze);
-                if (!maze.isAreaFree(getX(), getY(), 6, 6)) {
-                    gamePanel.scheduleWallDeathReset();
-                    this.deactivate();
-                }
-            }
-            @Override
-            public void deactivate() {
-                super.deactivate();
-            }
-        };
+        // Use the tested position
+        world.getBullets().add(testX, testY, angle, HomingMissile.SPEED, HomingMissile.LIFETIME,
+                1.0f, index, true);
+        return true;
     }
 
     public void reset() {
@@ -352,7 +309,7 @@ public class Tank {
         miniBulletsFired = 0;
         bulletSize = 1.0f;
         removeHomingMissiles();
-        shotTimestamps.clear();
+        shotCount = 0;
     }
 
     public void setBulletSize(float size) {
@@ -366,4 +323,61 @@ public class Tank {
     public float getY() {
         return y;
     }
+
+    public float getAngle() {
+        return angle;
+    }
+
+    public float getPrevX() {
+        return prevX;
+    }
+
+    public float getPrevY() {
+        return prevY;
+    }
+
+    public float getPrevAngle() {
+        return prevAngle;
+    }
+
+    // Everything but the index, for GameWorld.saveState()
+    void writeState(ByteBuffer out) {
+        out.putFloat(x).putFloat(y).putFloat(angle);
+        out.putFloat(prevX).putFloat(prevY).putFloat(prevAngle);
+        out.put((byte) (destroyed ? 1 : 0));
+        out.putInt(score);
+        out.putInt(maxBullets).putInt(activeBullets).putInt(activeNormalBullets).putInt(activePowerUpBullets);
+        out.put((byte) shotCount);
+        for (int i = 0; i < shotCount; i++) {
+            out.putLong(shotTimestamps[i]);
+        }
+        out.putFloat(bulletSize);
+        out.put((byte) (miniBulletsActive ? 1 : 0));
+        out.putInt(miniBulletsFired).putInt(homingMissiles);
+        out.put((byte) (hasBlock ? 1 : 0));
+    }
+
+    void readState(ByteBuffer in) {
+        x = in.getFloat();
+        y = in.getFloat();
+        angle = in.getFloat();
+        prevX = in.getFloat();
+        prevY = in.getFloat();
+        prevAngle = in.getFloat();
+        destroyed = in.get() != 0;
+        score = in.getInt();
+        maxBullets = in.getInt();
+        activeBullets = in.getInt();
+        activeNormalBullets = in.getInt();
+        activePowerUpBullets = in.getInt();
+        shotCount = in.get();
+        for (int i = 0; i < shotCount; i++) {
+            shotTimestamps[i] = in.getLong();
+        }
+        bulletSize = in.getFloat();
+        miniBulletsActive = in.get() != 0;
+        miniBulletsFired = in.getInt();
+        homingMissiles = in.getInt();
+        hasBlock = in.get() != 0;
+    }
 }
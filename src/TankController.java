@@ -0,0 +1,13 @@
+/**
+ * Drives a tank in place of a player's keys: each tick it is shown the world after the last
+ * tick and answers with that tick's {@link InputFrame}. The {@link BotView} is refreshed in
+ * place for the next tick, so only its maze may be kept, though a controller may be called
+ * from any thread, never from two at once, and keep whatever else it likes between ticks.
+ *
+ * The deadline is a System.nanoTime() the answer is due by. Work that would run past it
+ * should be cut short or carried over to the next tick; {@link BotPool} gives a tick's
+ * budget out among its controllers this way.
+ */
+public interface TankController {
+    int decide(BotView view, int player, long deadline);
+}
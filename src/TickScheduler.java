@@ -0,0 +1,189 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Game-clock timers for {@link GameWorld}: a priority queue of events due at a tick, run
+ * from inside step() in tick order, events due on the same tick in the order they were
+ * scheduled. No threads, and the timing is part of the simulation, so it replays, rolls
+ * back and saves with everything else.
+ *
+ * Events are small ints the owner dispatches on rather than Runnables, so the queue can go
+ * into saveState(). They also serve as the handle: cancel(), pause() and resume() act on
+ * every pending event of a type. A paused event keeps the ticks it had left and counts
+ * down from resume().
+ */
+final class TickScheduler {
+    interface Handler {
+        void run(int event);
+    }
+
+    // Binary min-heap on (due, order); paused events keep their remaining ticks in due
+    private long[] due = new long[8];
+    private long[] order = new long[8];
+    private int[] events = new int[8];
+    private int count = 0;
+    private long[] pausedLeft = new long[8];
+    private long[] pausedOrder = new long[8];
+    private int[] pausedEvents = new int[8];
+    private int pausedCount = 0;
+    private long nextOrder = 0;
+
+    void schedule(long tick, int event) {
+        push(tick, nextOrder++, event);
+    }
+
+    // Runs, in order, every event due by now; handlers may schedule more, even for now
+    void runDue(long now, Handler handler) {
+        while (count > 0 && due[0] <= now) {
+            int event = events[0];
+            removeAt(0);
+            handler.run(event);
+        }
+    }
+
+    boolean isScheduled(int event) {
+        return indexOf(events, count, event) >= 0 || indexOf(pausedEvents, pausedCount, event) >= 0;
+    }
+
+    void cancel(int event) {
+        for (int i; (i = indexOf(events, count, event)) >= 0; ) {
+            removeAt(i);
+        }
+        for (int i; (i = indexOf(pausedEvents, pausedCount, event)) >= 0; ) {
+            removePaused(i);
+        }
+    }
+
+    // Stops the clock on pending events of this type until resume()
+    void pause(int event, long now) {
+        for (int i; (i = indexOf(events, count, event)) >= 0; ) {
+            if (pausedCount == pausedEvents.length) growPaused();
+            pausedLeft[pausedCount] = Math.max(0, due[i] - now);
+            pausedOrder[pausedCount] = order[i];
+            pausedEvents[pausedCount++] = event;
+            removeAt(i);
+        }
+    }
+
+    void resume(int event, long now) {
+        for (int i; (i = indexOf(pausedEvents, pausedCount, event)) >= 0; ) {
+            push(now + pausedLeft[i], pausedOrder[i], event);
+            removePaused(i);
+        }
+    }
+
+    void clear() {
+        count = 0;
+        pausedCount = 0;
+    }
+
+    // Upper bound on the bytes write() takes right now
+    int stateSize() {
+        return 10 + (count + pausedCount) * 18;
+    }
+
+    void write(ByteBuffer out) {
+        out.putLong(nextOrder);
+        out.putShort((short) (count + pausedCount));
+        for (int i = 0; i < count; i++) {
+            out.putLong(due[i]).putLong(order[i]).put((byte) events[i]).put((byte) 0);
+        }
+        for (int i = 0; i < pausedCount; i++) {
+            out.putLong(pausedLeft[i]).putLong(pausedOrder[i]).put((byte) pausedEvents[i]).put((byte) 1);
+        }
+    }
+
+    void read(ByteBuffer in) {
+        clear();
+        nextOrder = in.getLong();
+        int n = in.getShort();
+        for (int i = 0; i < n; i++) {
+            long time = in.getLong(), o = in.getLong();
+            int event = in.get();
+            if (in.get() == 0) {
+                push(time, o, event);
+            } else {
+                if (pausedCount == pausedEvents.length) growPaused();
+                pausedLeft[pausedCount] = time;
+                pausedOrder[pausedCount] = o;
+                pausedEvents[pausedCount++] = event;
+            }
+        }
+    }
+
+    private void push(long tick, long o, int event) {
+        if (count == due.length) {
+            due = Arrays.copyOf(due, count * 2);
+            order = Arrays.copyOf(order, count * 2);
+            events = Arrays.copyOf(events, count * 2);
+        }
+        int i = count++;
+        set(i, tick, o, event);
+        siftUp(i);
+    }
+
+    private void removeAt(int i) {
+        count--;
+        if (i == count) return;
+        set(i, due[count], order[count], events[count]);
+        siftDown(i);
+        siftUp(i);
+    }
+
+    private void removePaused(int i) {
+        pausedCount--;
+        pausedLeft[i] = pausedLeft[pausedCount];
+        pausedOrder[i] = pausedOrder[pausedCount];
+        pausedEvents[i] = pausedEvents[pausedCount];
+    }
+
+    private void growPaused() {
+        pausedLeft = Arrays.copyOf(pausedLeft, pausedCount * 2);
+        pausedOrder = Arrays.copyOf(pausedOrder, pausedCount * 2);
+        pausedEvents = Arrays.copyOf(pausedEvents, pausedCount * 2);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!before(i, parent)) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int first = i, left = 2 * i + 1, right = left + 1;
+            if (left < count && before(left, first)) first = left;
+            if (right < count && before(right, first)) first = right;
+            if (first == i) return;
+            swap(i, first);
+            i = first;
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return due[a] != due[b] ? due[a] < due[b] : order[a] < order[b];
+    }
+
+    private void swap(int a, int b) {
+        long d = due[a], o = order[a];
+        int e = events[a];
+        set(a, due[b], order[b], events[b]);
+        set(b, d, o, e);
+    }
+
+    private void set(int i, long tick, long o, int event) {
+        due[i] = tick;
+        order[i] = o;
+        events[i] = event;
+    }
+
+    private static int indexOf(int[] events, int count, int event) {
+        for (int i = 0; i < count; i++) {
+            if (events[i] == event) return i;
+        }
+        return -1;
+    }
+}
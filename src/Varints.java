@@ -0,0 +1,28 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 integers, 7 bits per byte with the top bit set on all but the last,
+ * so the small counts and lengths in replays and state deltas mostly take one byte.
+ */
+public final class Varints {
+    private Varints() {
+    }
+
+    public static void put(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int get(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Varint longer than 5 bytes");
+    }
+}
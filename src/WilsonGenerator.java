@@ -0,0 +1,56 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Wilson's algorithm: loop-erased random walks. Every possible perfect maze is equally
+ * likely, at the cost of slow early walks on large mazes.
+ */
+public class WilsonGenerator implements MazeGenerator {
+    private boolean[] inMaze = new boolean[0];
+    private byte[] walkDir = new byte[0];  // Last direction taken out of each cell on the current walk
+
+    @Override
+    public void generate(Maze maze, Random rand) {
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        int cells = rows * cols;
+        if (inMaze.length != cells) {
+            inMaze = new boolean[cells];
+            walkDir = new byte[cells];
+        } else {
+            Arrays.fill(inMaze, false);
+        }
+
+        inMaze[rand.nextInt(cells)] = true;
+
+        for (int start = 0; start < cells; start++) {
+            if (inMaze[start]) continue;
+
+            // Random walk until the maze is hit; revisiting a cell overwrites its exit, erasing the loop
+            int cell = start;
+            while (!inMaze[cell]) {
+                int r = cell / cols;
+                int c = cell % cols;
+                int dir, nr, nc;
+                do {
+                    dir = rand.nextInt(4);
+                    nr = r + Maze.ROW_STEP[dir];
+                    nc = c + Maze.COL_STEP[dir];
+                } while (nr < 0 || nr >= rows || nc < 0 || nc >= cols);
+                walkDir[cell] = (byte) dir;
+                cell = nr * cols + nc;
+            }
+
+            // Carve the loop-erased path
+            cell = start;
+            while (!inMaze[cell]) {
+                int r = cell / cols;
+                int c = cell % cols;
+                int dir = walkDir[cell];
+                maze.openWall(r, c, dir);
+                inMaze[cell] = true;
+                cell = (r + Maze.ROW_STEP[dir]) * cols + c + Maze.COL_STEP[dir];
+            }
+        }
+    }
+}